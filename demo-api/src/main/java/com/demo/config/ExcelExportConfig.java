@@ -0,0 +1,19 @@
+package com.demo.config;
+
+import com.demo.common.service.ExcelExportService;
+import com.demo.common.service.impl.ExcelExportServiceImpl;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * excel异步导出配置
+ */
+@Configuration
+public class ExcelExportConfig {
+
+    @Bean
+    public ExcelExportService excelExportService(){
+        return new ExcelExportServiceImpl();
+    }
+
+}
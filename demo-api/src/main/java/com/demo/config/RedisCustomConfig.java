@@ -1,8 +1,19 @@
 package com.demo.config;
 
 import com.demo.common.config.BaseRedisConfig;
+import com.demo.common.domain.StreamRetentionProperties;
+import com.demo.common.service.RedisPubSubService;
 import com.demo.common.service.RedisService;
+import com.demo.common.service.RedisStreamConsumerService;
+import com.demo.common.service.RedisStreamProducer;
+import com.demo.common.service.impl.NearCacheRedisService;
+import com.demo.common.service.impl.RedisPubSubServiceImpl;
 import com.demo.common.service.impl.RedisServiceImpl;
+import com.demo.common.service.impl.RedisStreamConsumerServiceImpl;
+import com.demo.common.service.impl.RedisStreamProducerImpl;
+import com.demo.common.service.impl.RedisStreamRetention;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,10 +26,41 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class RedisCustomConfig extends BaseRedisConfig {
 
+    /**
+     * 是否开启本地缓存
+     */
+    @Value("${redis.near-cache.enabled:false}")
+    private boolean nearCacheEnabled;
+
     @Bean
     public RedisService redisService(){
-        return new RedisServiceImpl();
+        return nearCacheEnabled ? new NearCacheRedisService() : new RedisServiceImpl();
     }
 
-}
+    @Bean
+    @ConfigurationProperties(prefix = "redis.stream.retention")
+    public StreamRetentionProperties streamRetentionProperties(){
+        return new StreamRetentionProperties();
+    }
 
+    @Bean
+    public RedisStreamRetention redisStreamRetention(){
+        return new RedisStreamRetention();
+    }
+
+    @Bean
+    public RedisStreamConsumerService redisStreamConsumerService(){
+        return new RedisStreamConsumerServiceImpl();
+    }
+
+    @Bean
+    public RedisStreamProducer redisStreamProducer(){
+        return new RedisStreamProducerImpl();
+    }
+
+    @Bean
+    public RedisPubSubService redisPubSubService(){
+        return new RedisPubSubServiceImpl();
+    }
+
+}
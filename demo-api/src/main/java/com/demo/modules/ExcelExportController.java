@@ -0,0 +1,61 @@
+package com.demo.modules;
+
+import com.demo.common.domain.ExcelExportJob;
+import com.demo.common.exception.Asserts;
+import com.demo.common.service.ExcelExportService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * excel异步导出controller
+ */
+@RestController
+@Slf4j
+@Api(tags = "异步导出")
+@RequestMapping("/excel/export")
+public class ExcelExportController {
+
+    private static final MediaType XLSX = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    @Resource
+    private ExcelExportService excelExportService;
+
+    @ApiOperation("查询导出任务状态及进度")
+    @GetMapping("/{jobId}")
+    public ExcelExportJob job(@PathVariable String jobId) {
+        ExcelExportJob job = excelExportService.getJob(jobId);
+        Asserts.isTrue(job != null, "导出任务不存在或已过期");
+        return job;
+    }
+
+    @ApiOperation("下载导出文件,支持Range分段下载")
+    @GetMapping("/{jobId}/file")
+    public ResponseEntity<org.springframework.core.io.Resource> download(@PathVariable String jobId) {
+        ExcelExportJob job = excelExportService.getJob(jobId);
+        Asserts.isTrue(job != null, "导出任务不存在或已过期");
+        File file = excelExportService.getFile(jobId);
+        Asserts.isTrue(file != null, "导出任务未完成");
+        ContentDisposition disposition = ContentDisposition.builder("attachment")
+                .filename(job.getFileName() + ".xlsx", StandardCharsets.UTF_8)
+                .build();
+        // 返回Resource时由spring处理Range请求头,返回206分段内容
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .contentType(XLSX)
+                .body(new FileSystemResource(file));
+    }
+}
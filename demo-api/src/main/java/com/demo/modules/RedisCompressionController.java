@@ -0,0 +1,34 @@
+package com.demo.modules;
+
+import com.demo.common.domain.RedisCompressionStats;
+import com.demo.common.exception.Asserts;
+import com.demo.common.serializer.CompressingRedisSerializer;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+/**
+ * redis值压缩监控controller
+ */
+@RestController
+@Api(tags = "redis压缩监控")
+@RequestMapping("/redis/compression")
+public class RedisCompressionController {
+
+    @Resource
+    private RedisSerializer<Object> redisSerializer;
+
+    @ApiOperation("查询压缩率及压缩、解压耗时")
+    @GetMapping("/stats")
+    public RedisCompressionStats stats() {
+        if (!(redisSerializer instanceof CompressingRedisSerializer)) {
+            Asserts.fail("未开启redis压缩");
+        }
+        return ((CompressingRedisSerializer) redisSerializer).stats();
+    }
+}
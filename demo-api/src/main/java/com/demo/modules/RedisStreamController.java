@@ -0,0 +1,30 @@
+package com.demo.modules;
+
+import com.demo.common.domain.StreamConsumerMetrics;
+import com.demo.common.service.RedisStreamConsumerService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * redis stream 消费监控controller
+ */
+@RestController
+@Api(tags = "stream消费监控")
+@RequestMapping("/redis/stream")
+public class RedisStreamController {
+
+    @Resource
+    private RedisStreamConsumerService redisStreamConsumerService;
+
+    @ApiOperation("查询各消费组的积压、吞吐量及重新投递情况")
+    @GetMapping("/metrics")
+    public List<StreamConsumerMetrics> metrics() {
+        return redisStreamConsumerService.metrics();
+    }
+}
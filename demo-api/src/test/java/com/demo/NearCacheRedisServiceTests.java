@@ -0,0 +1,161 @@
+package com.demo;
+
+import com.demo.common.service.RedisService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+
+/**
+ * 本地缓存,需要本地redis;直接通过 redisTemplate 写入的值不会清除本地缓存,用来判断是否命中
+ * redisTemplate 替换为spy,用来在读取redis之后、写入本地缓存之前插入一次写入
+ */
+@SpringBootTest(properties = {"redis.near-cache.enabled=true", "redis.near-cache.key-prefixes=test:near:",
+        "redis.near-cache.maximum-size=100"})
+class NearCacheRedisServiceTests {
+
+    private static final int MAXIMUM_SIZE = 100;
+
+    @Resource
+    private RedisService redisService;
+    @SpyBean(name = "redisTemplate")
+    private RedisTemplate<String, Object> redisTemplate;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        key = "test:near:" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reset(redisTemplate);
+        redisService.del(key);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void valueInvalidatedWhileLoadingIsNotCached() {
+        redisService.set(key, "1");
+        ValueOperations<String, Object> ops = redisTemplate.opsForValue();
+        ValueOperations<String, Object> racing = mock(ValueOperations.class, delegatesTo(ops));
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Object loaded = ops.get(key);
+            // 读到旧值后、写入本地缓存前,另一个线程写入并清除了本地缓存
+            if (raced.compareAndSet(false, true)) {
+                redisService.set(key, "2");
+            }
+            return loaded;
+        }).when(racing).get(eq(key));
+        doReturn(racing).when(redisTemplate).opsForValue();
+
+        assertEquals("1", redisService.get(key));
+        assertEquals("2", redisService.get(key));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void hashFieldInvalidatedWhileLoadingIsNotCached() {
+        redisService.hSet(key, "a", "1");
+        HashOperations<String, Object, Object> ops = redisTemplate.opsForHash();
+        HashOperations<String, Object, Object> racing = mock(HashOperations.class, delegatesTo(ops));
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Object loaded = ops.get(key, "a");
+            if (raced.compareAndSet(false, true)) {
+                redisService.hSet(key, "a", "2");
+            }
+            return loaded;
+        }).when(racing).get(eq(key), eq("a"));
+        doReturn(racing).when(redisTemplate).opsForHash();
+
+        assertEquals("1", redisService.hGet(key, "a"));
+        assertEquals("2", redisService.hGet(key, "a"));
+    }
+
+    @Test
+    void hashFieldsAreCachedAndCountedSeparately() {
+        redisService.hSet(key, "a", "1");
+        double hits = gets("hit");
+        double misses = gets("miss");
+
+        assertEquals("1", redisService.hGet(key, "a"));
+        assertNull(redisService.hGet(key, "b"));
+        assertEquals(misses + 2, gets("miss"));
+
+        redisTemplate.opsForHash().put(key, "a", "2");
+        redisTemplate.opsForHash().put(key, "b", "2");
+        assertEquals("1", redisService.hGet(key, "a"));
+        assertNull(redisService.hGet(key, "b"));
+        assertEquals(hits + 2, gets("hit"));
+        assertEquals(misses + 2, gets("miss"));
+    }
+
+    @Test
+    void writeThroughServiceInvalidatesAllFieldsOfTheKey() {
+        redisService.hSet(key, "a", "1");
+        redisService.hSet(key, "b", "1");
+        assertEquals("1", redisService.hGet(key, "a"));
+        assertEquals("1", redisService.hGet(key, "b"));
+
+        redisTemplate.opsForHash().put(key, "b", "2");
+        redisService.hSet(key, "a", "2");
+
+        assertEquals("2", redisService.hGet(key, "a"));
+        assertEquals("2", redisService.hGet(key, "b"));
+    }
+
+    @Test
+    void maximumSizeBoundsHashFields() throws InterruptedException {
+        Map<String, Object> fields = new HashMap<>(MAXIMUM_SIZE * 4);
+        for (int i = 0; i < MAXIMUM_SIZE * 3; i++) {
+            fields.put(String.valueOf(i), i);
+        }
+        redisService.hSetAll(key, fields);
+
+        for (String field : fields.keySet()) {
+            redisService.hGet(key, field);
+        }
+
+        // 淘汰在后台异步执行
+        long deadline = System.currentTimeMillis() + 5000;
+        while (size() > MAXIMUM_SIZE && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(size() <= MAXIMUM_SIZE);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "near-cache.hashes").tag("result", result)
+                .functionCounter().count();
+    }
+
+    private double size() {
+        return meterRegistry.get("cache.size").tag("cache", "near-cache.hashes").gauge().value();
+    }
+}
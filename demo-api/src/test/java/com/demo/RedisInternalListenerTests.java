@@ -0,0 +1,91 @@
+package com.demo;
+
+import com.demo.common.service.RedisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import javax.annotation.Resource;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 消息分发线程池占满时内部通知仍能送达,需要本地redis;分发线程及排队数调为1以便占满
+ */
+@SpringBootTest(properties = {"redis.pubsub.threads=1", "redis.pubsub.queue-capacity=1"})
+class RedisInternalListenerTests {
+
+    @Resource
+    private RedisService redisService;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    private final MessageListener blockingListener = (message, pattern) -> {
+        blocked.countDown();
+        try {
+            unblock.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    };
+
+    private ExecutorService other;
+
+    private String lockKey;
+
+    @BeforeEach
+    void setUp() {
+        other = Executors.newSingleThreadExecutor();
+        lockKey = "test:lock:" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        redisMessageListenerContainer.removeMessageListener(blockingListener);
+        other.shutdownNow();
+        redisService.del(lockKey);
+    }
+
+    @Test
+    void lockReleaseIsDeliveredWhileDispatchQueueIsFull() throws Exception {
+        String channel = "test:pubsub:" + UUID.randomUUID();
+        redisMessageListenerContainer.addMessageListener(blockingListener, new ChannelTopic(channel));
+        // 订阅是异步完成的,发布到第一条消息被处理为止
+        while (!blocked.await(100, TimeUnit.MILLISECONDS)) {
+            redisService.publish(channel, "block");
+        }
+        for (int i = 0; i < 5; i++) {
+            redisService.publish(channel, "fill");
+        }
+
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        Future<Boolean> waiting = other.submit(() -> {
+            boolean locked = redisService.tryLock(lockKey, 5, TimeUnit.SECONDS);
+            if (locked) {
+                redisService.releaseLock(lockKey);
+            }
+            return locked;
+        });
+        Thread.sleep(200);
+        redisService.releaseLock(lockKey);
+
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+}
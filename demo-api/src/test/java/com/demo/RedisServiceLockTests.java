@@ -0,0 +1,135 @@
+package com.demo;
+
+import com.demo.common.service.RedisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 可重入分布式锁,需要本地redis;看门狗超时时间调小到600毫秒以便验证续期
+ */
+@SpringBootTest(properties = "redis.lock.watchdog-timeout=600")
+class RedisServiceLockTests {
+
+    private static final long WATCHDOG_TIMEOUT = 600;
+
+    @Resource
+    private RedisService redisService;
+
+    private ExecutorService other;
+
+    private String lockKey;
+
+    @BeforeEach
+    void setUp() {
+        other = Executors.newSingleThreadExecutor();
+        lockKey = "test:lock:" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        other.shutdownNow();
+        redisService.del(lockKey);
+    }
+
+    @Test
+    void reentrantLockIsReleasedAfterMatchingReleases() throws Exception {
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        assertFalse(onOtherThread(() -> redisService.tryLock(lockKey, 0, TimeUnit.SECONDS)));
+
+        redisService.releaseLock(lockKey);
+        assertFalse(onOtherThread(() -> redisService.tryLock(lockKey, 0, TimeUnit.SECONDS)));
+
+        redisService.releaseLock(lockKey);
+        assertTrue(onOtherThread(() -> redisService.tryLock(lockKey, 0, TimeUnit.SECONDS)));
+        onOtherThread(() -> {
+            redisService.releaseLock(lockKey);
+            return null;
+        });
+    }
+
+    @Test
+    void waiterIsWokenByRelease() throws Exception {
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        Future<Boolean> waiting = other.submit(() -> {
+            boolean locked = redisService.tryLock(lockKey, 5, TimeUnit.SECONDS);
+            if (locked) {
+                redisService.releaseLock(lockKey);
+            }
+            return locked;
+        });
+        Thread.sleep(200);
+        redisService.releaseLock(lockKey);
+
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    @Test
+    void watchdogKeepsTheLockPastItsTimeout() throws Exception {
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        Thread.sleep(WATCHDOG_TIMEOUT * 3);
+
+        assertTrue(redisService.hasKey(lockKey));
+        assertFalse(onOtherThread(() -> redisService.tryLock(lockKey, 0, TimeUnit.SECONDS)));
+        redisService.releaseLock(lockKey);
+        assertFalse(redisService.hasKey(lockKey));
+    }
+
+    @Test
+    void releaseByNonOwnerFailsAndKeepsOwnersWatchdog() throws Exception {
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+
+        assertThrows(IllegalMonitorStateException.class, () -> {
+            try {
+                onOtherThread(() -> {
+                    redisService.releaseLock(lockKey);
+                    return null;
+                });
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        });
+        Thread.sleep(WATCHDOG_TIMEOUT * 3);
+
+        assertTrue(redisService.hasKey(lockKey));
+        redisService.releaseLock(lockKey);
+    }
+
+    @Test
+    void nextHolderOnTheSameNodeGetsItsOwnWatchdog() throws Exception {
+        assertTrue(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        redisService.releaseLock(lockKey);
+        assertTrue(onOtherThread(() -> redisService.tryLock(lockKey, 0, TimeUnit.SECONDS)));
+        // 当前线程获取失败,不影响另一个线程的续期
+        assertFalse(redisService.tryLock(lockKey, 0, TimeUnit.SECONDS));
+        Thread.sleep(WATCHDOG_TIMEOUT * 3);
+
+        assertTrue(redisService.hasKey(lockKey));
+        onOtherThread(() -> {
+            redisService.releaseLock(lockKey);
+            return null;
+        });
+        assertFalse(redisService.hasKey(lockKey));
+    }
+
+    private <T> T onOtherThread(Callable<T> task) throws Exception {
+        return other.submit(task).get(5, TimeUnit.SECONDS);
+    }
+}
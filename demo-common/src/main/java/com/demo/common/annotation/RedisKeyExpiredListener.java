@@ -0,0 +1,20 @@
+package com.demo.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * redis key过期监听注解,加在spring bean的方法上,方法只能有一个String参数,为过期的key
+ * 需要开启 spring.redis.keyEventExpired;过期事件在redis删除key时发出,可能比设置的过期时间晚
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RedisKeyExpiredListener {
+    /**
+     * 只接收以该前缀开头的key,为空时接收全部
+     * @return  key前缀
+     */
+    String keyPrefix() default "";
+}
@@ -0,0 +1,39 @@
+package com.demo.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * redis pub/sub 订阅注解,加在spring bean的方法上,接收 RedisService.publish 推送的消息
+ * 方法只能有一个参数,消息内容按参数类型反序列化;batchSize 大于1时参数为 List,批量接收
+ * 注意 : pub/sub 不持久化,节点不在线期间的消息会丢失,需要可靠投递时使用 {@link RedisStreamListener}
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RedisMessageListener {
+    /**
+     * 消息通道,与 RedisService.publish 的 channel 一致
+     * @return  消息通道
+     */
+    String channel();
+
+    /**
+     * channel 是否为通配符,如 order:*
+     * @return  是否为通配符
+     */
+    boolean pattern() default false;
+
+    /**
+     * 每批最多的消息数,大于1时批量接收
+     * @return  每批最多的消息数
+     */
+    int batchSize() default 1;
+
+    /**
+     * 批量接收时攒批的最长等待时间,单位毫秒
+     * @return  攒批等待时间
+     */
+    long batchWindowMillis() default 100;
+}
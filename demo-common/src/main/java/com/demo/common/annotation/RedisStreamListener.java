@@ -0,0 +1,26 @@
+package com.demo.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * redis stream 消费者注解,加在spring bean的方法上
+ * 方法只能有一个参数,消息内容按参数类型反序列化;方法正常返回后确认消息,抛出异常时消息留在待处理列表中等待重新投递
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RedisStreamListener {
+    /**
+     * 消息通道,与 RedisService.sendMsgForStream 的 streamKey 一致,不带 STREAM: 前缀
+     * @return  消息通道
+     */
+    String streamKey();
+
+    /**
+     * 消费组,同一个组内的多个节点分摊消息,不同组各自收到全部消息
+     * @return  消费组
+     */
+    String group();
+}
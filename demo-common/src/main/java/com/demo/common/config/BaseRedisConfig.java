@@ -1,18 +1,31 @@
 package com.demo.common.config;
 
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.demo.common.serializer.CompressingRedisSerializer;
+import com.demo.common.serializer.SmileRedisSerializer;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import javax.annotation.Resource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * redis基础配置
@@ -20,34 +33,119 @@ import javax.annotation.Resource;
  * @author molong
  * @date 2021/9/6
  */
+@Slf4j
 public class BaseRedisConfig {
+    /**
+     * Smile二进制序列化
+     */
+    public static final String SERIALIZER_SMILE = "smile";
+
     @Resource
     private RedisSerializer<Object> redisSerializer;
 
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return createRedisTemplate(redisConnectionFactory, redisSerializer);
+    }
+
+    /**
+     * 创建使用指定值序列化器的RedisTemplate,需要单独序列化方式的场景可以另外声明一个template
+     *
+     * @param redisConnectionFactory 连接工厂
+     * @param valueSerializer        值及Hash值的序列化器
+     * @return RedisTemplate
+     */
+    protected RedisTemplate<String, Object> createRedisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                                                RedisSerializer<Object> valueSerializer) {
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         redisTemplate.setKeySerializer(new StringRedisSerializer());
-        redisTemplate.setValueSerializer(redisSerializer);
+        redisTemplate.setValueSerializer(valueSerializer);
         redisTemplate.setHashKeySerializer(new StringRedisSerializer());
-        redisTemplate.setHashValueSerializer(redisSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
         redisTemplate.afterPropertiesSet();
         return redisTemplate;
     }
 
+    /**
+     * redis消息监听容器,pub/sub订阅统一注册到这里
+     * 默认每条消息新建一个线程分发,改为有界线程池;队列满时丢弃消息,不阻塞redis连接线程
+     * 锁释放、本地缓存失效等内部通知不能丢弃,注册到 {@link #redisInternalListenerContainer}
+     *
+     * @param threads       消息分发线程数
+     * @param queueCapacity 消息分发排队数
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       @Value("${redis.pubsub.threads:4}") int threads,
+                                                                       @Value("${redis.pubsub.queue-capacity:10000}") int queueCapacity) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.setTaskExecutor(new ThreadPoolExecutor(threads,
+                threads,
+                0,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                ThreadFactoryBuilder.create().setNamePrefix("redis-listener-").setDaemon(true).build(),
+                (r, executor) -> log.warn("redis消息分发队列已满,丢弃消息")));
+        // 订阅线程单独创建,不占用消息分发线程
+        container.setSubscriptionExecutor(new SimpleAsyncTaskExecutor("redis-subscription-"));
+        return container;
+    }
+
+    /**
+     * 内部通知的消息监听容器,锁释放、本地缓存失效等通知丢失会导致等待超时或读到旧值
+     * 使用单独的订阅连接,在redis连接线程上直接处理,不排队也不丢弃,监听器中只能做不阻塞的操作
+     */
+    @Bean
+    public RedisMessageListenerContainer redisInternalListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.setTaskExecutor(new SyncTaskExecutor());
+        container.setSubscriptionExecutor(new SimpleAsyncTaskExecutor("redis-internal-subscription-"));
+        return container;
+    }
+
+    /**
+     * 值序列化器
+     *
+     * @param serializerType    序列化方式 json / smile,切换为smile后仍可读取原有的json数据,切回json前需要清理smile写入的数据
+     * @param compression       是否压缩大值
+     * @param compressThreshold 压缩阈值,序列化后不小于该字节数的值才压缩
+     */
     @Bean
-    public RedisSerializer<Object> redisSerializer() {
+    public RedisSerializer<Object> redisSerializer(@Value("${redis.serializer:json}") String serializerType,
+                                                   @Value("${redis.compression.enabled:false}") boolean compression,
+                                                   @Value("${redis.compression.threshold:16384}") int compressThreshold) {
+        RedisSerializer<Object> serializer = SERIALIZER_SMILE.equalsIgnoreCase(serializerType) ? smileRedisSerializer() : jsonRedisSerializer();
+        return compression ? new CompressingRedisSerializer(serializer, compressThreshold) : serializer;
+    }
+
+    /**
+     * JSON序列化器
+     */
+    public static RedisSerializer<Object> jsonRedisSerializer() {
         //创建JSON序列化器
         Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        ObjectMapper objectMapper = new ObjectMapper();
+        serializer.setObjectMapper(createObjectMapper(new JsonFactory()));
+        return serializer;
+    }
+
+    /**
+     * Smile二进制序列化器,类型信息与JSON序列化器一致
+     */
+    public static RedisSerializer<Object> smileRedisSerializer() {
+        return new SmileRedisSerializer(createObjectMapper(new SmileFactory()), createObjectMapper(new JsonFactory()));
+    }
+
+    private static ObjectMapper createObjectMapper(JsonFactory jsonFactory) {
+        ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
         objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
         //必须设置，否则无法将JSON转化为对象，会转化成Map类型
         objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
         //解决jackson2无法反序列化LocalDateTime的问题
         objectMapper.registerModule(new JavaTimeModule());
-        serializer.setObjectMapper(objectMapper);
-        return serializer;
+        return objectMapper;
     }
 
 }
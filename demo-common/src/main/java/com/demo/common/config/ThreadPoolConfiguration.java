@@ -1,13 +1,26 @@
 package com.demo.common.config;
 
 import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.demo.common.domain.ThreadPoolProperties;
+import com.demo.common.enums.ExecutorMode;
+import com.demo.common.executor.ConcurrencyLimitedExecutorService;
+import com.demo.common.executor.ContextTaskDecorator;
+import com.demo.common.executor.MonitoredThreadPoolExecutor;
+import com.demo.common.executor.RequestDeadlineFilter;
+import com.demo.common.executor.ThreadPoolEndpoint;
+import com.demo.common.executor.VirtualThreads;
+import com.demo.common.service.ParallelService;
+import com.demo.common.service.impl.ParallelServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 线程池配置
@@ -15,25 +28,70 @@ import java.util.concurrent.TimeUnit;
  * @author molong
  * @date 2021/9/6
  */
+@Slf4j
 @Configuration
 public class ThreadPoolConfiguration {
 
+    @Bean
+    @ConfigurationProperties(prefix = "thread-pool")
+    public ThreadPoolProperties threadPoolProperties() {
+        return new ThreadPoolProperties();
+    }
+
+    /**
+     * 通用线程池,虚拟线程模式在JDK 21以下回退为平台线程池
+     */
     @Bean(name = "executorService", destroyMethod = "shutdown")
-    public ExecutorService executorService() {
-        // 线程池维护线程所允许的空闲时间
-        int keepAliveSeconds = 120;
-        // 队列最大长度
-        int queueCapacity = 200;
-        // 最大可创建的线程数
-        int maxPoolSize = 150;
-        // 核心线程池大小
-        int corePoolSize = 35;
-        return new ThreadPoolExecutor(corePoolSize,
-                maxPoolSize,
-                keepAliveSeconds,
-                TimeUnit.SECONDS,
-                new ArrayBlockingQueue<>(queueCapacity),
+    public ExecutorService executorService(ThreadPoolProperties threadPoolProperties, MeterRegistry meterRegistry) {
+        ContextTaskDecorator taskDecorator = new ContextTaskDecorator("executorService",
+                threadPoolProperties.getTaskTimeoutMillis(), meterRegistry);
+        if (threadPoolProperties.getMode() == ExecutorMode.VIRTUAL) {
+            if (VirtualThreads.isSupported()) {
+                log.info("executorService 使用虚拟线程,最大并发数 {}", threadPoolProperties.getMaxConcurrency());
+                ConcurrencyLimitedExecutorService executor = new ConcurrencyLimitedExecutorService("executorService",
+                        VirtualThreads.newVirtualThreadPerTaskExecutor(),
+                        threadPoolProperties.getMaxConcurrency(),
+                        meterRegistry);
+                executor.setTaskDecorator(taskDecorator);
+                return executor;
+            }
+            log.warn("当前JDK {} 不支持虚拟线程,executorService 使用平台线程池", System.getProperty("java.version"));
+        }
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("executorService",
+                threadPoolProperties,
                 ThreadFactoryBuilder.create().setNamePrefix("executor-").setDaemon(true).build(),
-                new ThreadPoolExecutor.CallerRunsPolicy());
+                meterRegistry);
+        executor.setTaskDecorator(taskDecorator);
+        return executor;
+    }
+
+    /**
+     * 为请求线程设置截止时间,请求中 submit 到 executorService 的任务超时后不再执行
+     */
+    @Bean
+    public RequestDeadlineFilter requestDeadlineFilter(ThreadPoolProperties threadPoolProperties) {
+        return new RequestDeadlineFilter(threadPoolProperties.getRequestTimeoutMillis());
+    }
+
+    /**
+     * 基于 executorService 的并行执行服务
+     */
+    @Bean
+    public ParallelService parallelService(@Qualifier("executorService") ExecutorService executorService) {
+        return new ParallelServiceImpl(executorService);
+    }
+
+    /**
+     * 线程池监控端点,包含所有 MonitoredThreadPoolExecutor 类型的线程池
+     */
+    @Bean
+    public ThreadPoolEndpoint threadPoolEndpoint(Map<String, ExecutorService> executorServices) {
+        Map<String, MonitoredThreadPoolExecutor> executors = new HashMap<>(executorServices.size());
+        executorServices.values().forEach(executor -> {
+            if (executor instanceof MonitoredThreadPoolExecutor) {
+                executors.put(((MonitoredThreadPoolExecutor) executor).getName(), (MonitoredThreadPoolExecutor) executor);
+            }
+        });
+        return new ThreadPoolEndpoint(executors);
     }
 }
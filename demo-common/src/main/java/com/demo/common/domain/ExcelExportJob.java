@@ -0,0 +1,41 @@
+package com.demo.common.domain;
+
+import com.demo.common.enums.ExportJobStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步导出任务
+ */
+@Data
+public class ExcelExportJob {
+    /**
+     * 任务id,用于查询进度及下载
+     */
+    private String jobId;
+    /**
+     * 下载文件名,不含后缀
+     */
+    private String fileName;
+    /**
+     * 任务状态
+     */
+    private ExportJobStatus status;
+    /**
+     * 已写出行数
+     */
+    private long rows;
+    /**
+     * 失败原因
+     */
+    private String message;
+    /**
+     * 提交时间
+     */
+    private LocalDateTime createTime;
+    /**
+     * 完成时间
+     */
+    private LocalDateTime finishTime;
+}
@@ -0,0 +1,31 @@
+package com.demo.common.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 多sheet导出时单个sheet的定义
+ */
+@Data
+@Builder
+public class ExcelSheet<T> {
+    /**
+     * sheet名称
+     */
+    private String sheetName;
+    /**
+     * 标题
+     */
+    private String titleName;
+    /**
+     * 实体类型,加了ExcelTitle注解的列才会导出,不加注解默认全部导出
+     */
+    private Class<T> cls;
+    /**
+     * 数据查询,在线程池中执行
+     */
+    private Supplier<List<T>> dataLoader;
+}
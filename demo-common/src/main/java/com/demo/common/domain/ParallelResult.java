@@ -0,0 +1,34 @@
+package com.demo.common.domain;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 并行任务的部分结果,失败或超时的任务不影响其他任务的结果
+ */
+@Data
+public class ParallelResult<T> {
+    /**
+     * 结果,与任务顺序一致,失败或未完成的任务为null
+     */
+    private List<T> values;
+    /**
+     * 失败的任务,key为任务下标;被取消的任务为 CancellationException
+     */
+    private Map<Integer, Throwable> failures;
+    /**
+     * 超时时仍未完成的任务数,这些任务已被取消
+     */
+    private int unfinished;
+
+    /**
+     * 是否全部成功
+     *
+     * @return 没有失败及未完成的任务
+     */
+    public boolean isComplete() {
+        return failures.isEmpty() && unfinished == 0;
+    }
+}
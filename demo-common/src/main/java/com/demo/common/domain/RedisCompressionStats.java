@@ -0,0 +1,46 @@
+package com.demo.common.domain;
+
+import lombok.Data;
+
+/**
+ * redis值压缩统计,用于调整压缩阈值
+ */
+@Data
+public class RedisCompressionStats {
+    /**
+     * 压缩阈值,序列化后不小于该字节数的值才压缩
+     */
+    private int threshold;
+    /**
+     * 压缩写入的值个数
+     */
+    private long compressed;
+    /**
+     * 低于阈值或压缩后未变小而原样写入的值个数
+     */
+    private long skipped;
+    /**
+     * 压缩前总字节数
+     */
+    private long rawBytes;
+    /**
+     * 压缩后总字节数
+     */
+    private long compressedBytes;
+    /**
+     * 压缩率,压缩后字节数 / 压缩前字节数
+     */
+    private double ratio;
+    /**
+     * 平均每次压缩耗时,单位微秒
+     */
+    private double avgCompressMicros;
+    /**
+     * 解压读取的值个数
+     */
+    private long decompressed;
+    /**
+     * 平均每次解压耗时,单位微秒
+     */
+    private double avgDecompressMicros;
+}
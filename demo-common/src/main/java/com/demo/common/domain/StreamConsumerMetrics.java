@@ -0,0 +1,54 @@
+package com.demo.common.domain;
+
+import lombok.Data;
+
+/**
+ * stream 消费者运行指标
+ */
+@Data
+public class StreamConsumerMetrics {
+    /**
+     * 消息通道
+     */
+    private String streamKey;
+    /**
+     * 消费组
+     */
+    private String group;
+    /**
+     * 当前节点的消费者名称
+     */
+    private String consumer;
+    /**
+     * 本节点读取的消息数
+     */
+    private long received;
+    /**
+     * 本节点处理成功的消息数
+     */
+    private long processed;
+    /**
+     * 本节点处理失败的消息数
+     */
+    private long failed;
+    /**
+     * 本节点从其他消费者认领重新投递的消息数
+     */
+    private long redelivered;
+    /**
+     * 超过最大投递次数被丢弃的消息数
+     */
+    private long deadLettered;
+    /**
+     * 消费组已投递未确认的消息数
+     */
+    private long pending;
+    /**
+     * 消费组落后时间,单位毫秒,最新消息与最后投递消息的id时间差
+     */
+    private long lagMillis;
+    /**
+     * 最近一个统计周期内每秒处理的消息数
+     */
+    private double throughput;
+}
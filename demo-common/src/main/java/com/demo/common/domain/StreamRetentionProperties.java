@@ -0,0 +1,53 @@
+package com.demo.common.domain;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * redis stream 消息保留配置
+ */
+@Data
+public class StreamRetentionProperties {
+    /**
+     * 后台裁剪间隔
+     */
+    private Duration trimInterval = Duration.ofMinutes(1);
+    /**
+     * 未单独配置的stream使用的保留策略,默认最多保留10万条,避免消息太多导致 redis 服务器的内存爆炸
+     */
+    private Policy defaultPolicy = Policy.maxLen(10 * 10000L);
+    /**
+     * 按stream配置的保留策略,key为不带 STREAM: 前缀的streamKey,配置后完全替代默认策略
+     */
+    private Map<String, Policy> streams = new HashMap<>();
+
+    @Data
+    public static class Policy {
+        /**
+         * 最多保留的消息数,为空时不按数量裁剪
+         */
+        private Long maxLen;
+        /**
+         * 消息最长保留时间,为空时不按时间裁剪;按 MINID 裁剪,需要 redis 6.2 及以上
+         */
+        private Duration minAge;
+        /**
+         * 是否近似裁剪,按整个节点删除,开销远小于精确裁剪,保留的消息数会略多于配置
+         */
+        private boolean approximate = true;
+        /**
+         * 是否在写入时裁剪;热点stream可以关闭,改由后台定时裁剪
+         * 写入时只能使用一个条件,同时配置时写入按数量裁剪,时间由后台裁剪
+         */
+        private boolean trimOnWrite = true;
+
+        static Policy maxLen(long maxLen) {
+            Policy policy = new Policy();
+            policy.setMaxLen(maxLen);
+            return policy;
+        }
+    }
+}
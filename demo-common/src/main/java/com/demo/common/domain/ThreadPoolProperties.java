@@ -0,0 +1,44 @@
+package com.demo.common.domain;
+
+import com.demo.common.enums.ExecutorMode;
+import lombok.Data;
+
+/**
+ * 线程池配置,运行期间可通过 threadpool 监控端点调整,重启后恢复为配置值
+ */
+@Data
+public class ThreadPoolProperties {
+    /**
+     * 运行模式,任务以阻塞的redis、http、数据库调用为主时可使用虚拟线程
+     */
+    private ExecutorMode mode = ExecutorMode.PLATFORM;
+    /**
+     * 虚拟线程模式下的最大并发任务数,以下线程数及队列配置只对平台线程池生效
+     */
+    private int maxConcurrency = 1000;
+    /**
+     * 核心线程池大小
+     */
+    private int corePoolSize = 35;
+    /**
+     * 最大可创建的线程数
+     */
+    private int maxPoolSize = 150;
+    /**
+     * 队列最大长度,队列满且线程数达到最大时由提交任务的线程自己执行
+     */
+    private int queueCapacity = 200;
+    /**
+     * 线程池维护线程所允许的空闲时间,单位秒
+     */
+    private int keepAliveSeconds = 120;
+    /**
+     * 任务默认截止时间,单位毫秒,submit 提交后超过该时间仍未开始执行的任务不再执行;0 为不限制
+     * 提交线程已设置 TaskDeadline 时以其为准
+     */
+    private long taskTimeoutMillis = 0;
+    /**
+     * 请求截止时间,单位毫秒,请求中 submit 提交的任务超过该时间仍未开始执行时不再执行;0 为不限制
+     */
+    private long requestTimeoutMillis = 0;
+}
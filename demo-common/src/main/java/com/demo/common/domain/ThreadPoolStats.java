@@ -0,0 +1,70 @@
+package com.demo.common.domain;
+
+import lombok.Data;
+
+/**
+ * 线程池运行指标
+ */
+@Data
+public class ThreadPoolStats {
+    /**
+     * 线程池名称
+     */
+    private String name;
+    /**
+     * 核心线程池大小
+     */
+    private int corePoolSize;
+    /**
+     * 最大线程数
+     */
+    private int maximumPoolSize;
+    /**
+     * 当前线程数
+     */
+    private int poolSize;
+    /**
+     * 历史最大线程数
+     */
+    private int largestPoolSize;
+    /**
+     * 正在执行任务的线程数
+     */
+    private int activeCount;
+    /**
+     * 排队中的任务数
+     */
+    private int queueSize;
+    /**
+     * 队列最大长度
+     */
+    private int queueCapacity;
+    /**
+     * 已完成的任务数
+     */
+    private long completedTaskCount;
+    /**
+     * 线程池满后由提交任务的线程自己执行的任务数
+     */
+    private long callerRunsCount;
+    /**
+     * 线程池关闭后被丢弃的任务数
+     */
+    private long rejectedCount;
+    /**
+     * 任务平均排队时间,单位毫秒
+     */
+    private double waitMeanMillis;
+    /**
+     * 任务排队时间的99分位,单位毫秒
+     */
+    private double waitP99Millis;
+    /**
+     * 任务平均执行时间,单位毫秒
+     */
+    private double runMeanMillis;
+    /**
+     * 任务执行时间的99分位,单位毫秒
+     */
+    private double runP99Millis;
+}
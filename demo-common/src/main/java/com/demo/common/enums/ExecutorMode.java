@@ -0,0 +1,28 @@
+package com.demo.common.enums;
+
+import lombok.Getter;
+
+/**
+ * 通用线程池的运行模式
+ */
+public enum ExecutorMode {
+    /**
+     * 固定上限的平台线程池
+     */
+    PLATFORM("平台线程池"),
+    /**
+     * 每个任务一个虚拟线程,用信号量限制并发数,需要JDK 21,低版本回退为平台线程池
+     */
+    VIRTUAL("虚拟线程"),
+    ;
+
+    /**
+     * 描述
+     */
+    @Getter
+    private final String desc;
+
+    ExecutorMode(String desc) {
+        this.desc = desc;
+    }
+}
@@ -0,0 +1,36 @@
+package com.demo.common.enums;
+
+import lombok.Getter;
+
+/**
+ * 异步导出任务状态
+ */
+public enum ExportJobStatus {
+    /**
+     * 排队中
+     */
+    WAITING("排队中"),
+    /**
+     * 导出中
+     */
+    RUNNING("导出中"),
+    /**
+     * 导出成功
+     */
+    SUCCESS("导出成功"),
+    /**
+     * 导出失败
+     */
+    FAILED("导出失败"),
+    ;
+
+    /**
+     * 描述
+     */
+    @Getter
+    private final String desc;
+
+    ExportJobStatus(String desc) {
+        this.desc = desc;
+    }
+}
@@ -0,0 +1,32 @@
+package com.demo.common.enums;
+
+import lombok.Getter;
+
+/**
+ * stream 异步发送队列满时的处理策略
+ */
+public enum StreamBackpressure {
+    /**
+     * 阻塞等待队列空位,超时后失败
+     */
+    BLOCK("阻塞等待"),
+    /**
+     * 立即失败
+     */
+    FAIL("立即失败"),
+    /**
+     * 在调用方线程同步发送
+     */
+    CALLER_RUNS("同步发送"),
+    ;
+
+    /**
+     * 描述
+     */
+    @Getter
+    private final String desc;
+
+    StreamBackpressure(String desc) {
+        this.desc = desc;
+    }
+}
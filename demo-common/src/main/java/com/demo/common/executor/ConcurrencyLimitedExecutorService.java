@@ -0,0 +1,159 @@
+package com.demo.common.executor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用信号量限制并发数的线程池包装,用于每个任务一个虚拟线程的线程池,以并发上限代替线程数上限
+ * 达到上限时提交任务的线程等待许可,最多等到当前线程的截止时间 {@link TaskDeadline},
+ * 仍未获得许可时由提交任务的线程自己执行,并计入 executor.caller.runs
+ * 在本线程池的任务中再提交任务时不等待,没有空闲许可直接由当前线程执行,避免占用许可的任务互相等待
+ * 指标与 MonitoredThreadPoolExecutor 使用相同的名称,executor.wait 为提交线程等待许可的时间
+ */
+public class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    /**
+     * 当前线程是否在执行本线程池的任务
+     */
+    private final ThreadLocal<Boolean> inTask = new ThreadLocal<>();
+    private final Counter callerRuns;
+    private final Counter rejected;
+    private final Timer waitTimer;
+    private final Timer runTimer;
+    private volatile TaskDecorator taskDecorator;
+
+    public ConcurrencyLimitedExecutorService(String name, ExecutorService delegate, int maxConcurrency, MeterRegistry meterRegistry) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("并发数必须大于0:" + maxConcurrency);
+        }
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        Tags tags = Tags.of("name", name);
+        callerRuns = Counter.builder("executor.caller.runs")
+                .description("未能在截止时间前获得许可而由提交任务的线程自己执行的任务数").tags(tags).register(meterRegistry);
+        rejected = Counter.builder("executor.rejected")
+                .description("线程池关闭后被丢弃的任务数").tags(tags).register(meterRegistry);
+        waitTimer = Timer.builder("executor.wait")
+                .description("提交任务时等待并发许可的时间").tags(tags)
+                .publishPercentiles(0.99).publishPercentileHistogram().register(meterRegistry);
+        runTimer = Timer.builder("executor.run")
+                .description("任务执行时间").tags(tags)
+                .publishPercentiles(0.99).publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("executor.pool.max", this, e -> e.maxConcurrency).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.active", this, e -> e.maxConcurrency - e.permits.availablePermits()).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.queued", permits, Semaphore::getQueueLength).tags(tags).register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        TaskDecorator decorator = taskDecorator;
+        Runnable task = decorator == null ? command : decorator.decorate(command);
+        long submitTime = System.nanoTime();
+        boolean acquired = acquire();
+        waitTimer.record(System.nanoTime() - submitTime, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            if (isShutdown()) {
+                rejected.increment();
+                throw new RejectedExecutionException("线程池已关闭");
+            }
+            callerRuns.increment();
+            run(task);
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                inTask.set(Boolean.TRUE);
+                try {
+                    run(task);
+                } finally {
+                    inTask.remove();
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取并发许可,本线程池的任务中只尝试不等待,其他线程最多等到截止时间
+     *
+     * @return 是否获得许可
+     */
+    private boolean acquire() {
+        if (inTask.get() != null) {
+            return permits.tryAcquire();
+        }
+        long remaining = TaskDeadline.remaining(TimeUnit.NANOSECONDS);
+        try {
+            if (remaining == Long.MAX_VALUE) {
+                permits.acquire();
+                return true;
+            }
+            return permits.tryAcquire(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("等待并发许可时被中断", e);
+        }
+    }
+
+    private void run(Runnable task) {
+        long runStart = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            runTimer.record(System.nanoTime() - runStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 设置任务装饰器,在提交任务的线程中调用
+     *
+     * @param taskDecorator 任务装饰器
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
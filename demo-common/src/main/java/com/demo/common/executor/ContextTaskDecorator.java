@@ -0,0 +1,100 @@
+package com.demo.common.executor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交任务时记录提交线程的日志MDC、请求上下文及截止时间,执行时还原,执行完后恢复执行线程原有的上下文
+ * 截止时间取提交线程的 {@link TaskDeadline},未设置时为提交时间之后的 taskTimeoutMillis(0 为不限制)
+ * 开始执行时已超过截止时间的 submit 任务(FutureTask)不再执行并被取消,get 时抛出 CancellationException,计入 executor.expired
+ * execute 提交的任务及 CompletableFuture 的异步任务没有可以通知调用方的结果,超时后仍照常执行;
+ * 请求结束后也必须完成的后台任务不要用 submit 提交,或在提交前调用 {@link TaskDeadline#clear()}
+ */
+@Slf4j
+public class ContextTaskDecorator implements TaskDecorator {
+
+    private final String name;
+    private final long taskTimeoutNanos;
+    private final Counter expired;
+
+    public ContextTaskDecorator(String name, long taskTimeoutMillis, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.taskTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(taskTimeoutMillis);
+        expired = Counter.builder("executor.expired")
+                .description("超过截止时间未执行的任务数").tag("name", name).register(meterRegistry);
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Long deadline = TaskDeadline.get();
+        if (deadline == null && taskTimeoutNanos > 0) {
+            deadline = System.nanoTime() + taskTimeoutNanos;
+        }
+        return new ContextRunnable(runnable, MDC.getCopyOfContextMap(), RequestContextHolder.getRequestAttributes(), deadline);
+    }
+
+    /**
+     * 超过截止时间未执行的任务数
+     *
+     * @return 任务数
+     */
+    public long expiredCount() {
+        return (long) expired.count();
+    }
+
+    private class ContextRunnable implements Runnable {
+        private final Runnable task;
+        private final Map<String, String> mdc;
+        private final RequestAttributes requestAttributes;
+        private final Long deadline;
+
+        ContextRunnable(Runnable task, Map<String, String> mdc, RequestAttributes requestAttributes, Long deadline) {
+            this.task = task;
+            this.mdc = mdc;
+            this.requestAttributes = requestAttributes;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            if (task instanceof FutureTask && deadline != null && System.nanoTime() - deadline >= 0) {
+                expired.increment();
+                ((FutureTask<?>) task).cancel(false);
+                log.debug("任务已超过截止时间,不再执行;{}", name);
+                return;
+            }
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+            Long previousDeadline = TaskDeadline.get();
+            apply(mdc, requestAttributes, deadline);
+            try {
+                task.run();
+            } finally {
+                apply(previousMdc, previousAttributes, previousDeadline);
+            }
+        }
+
+        private void apply(Map<String, String> mdc, RequestAttributes requestAttributes, Long deadline) {
+            if (mdc == null) {
+                MDC.clear();
+            } else {
+                MDC.setContextMap(mdc);
+            }
+            if (requestAttributes == null) {
+                RequestContextHolder.resetRequestAttributes();
+            } else {
+                RequestContextHolder.setRequestAttributes(requestAttributes);
+            }
+            TaskDeadline.set(deadline);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.demo.common.executor;
+
+import com.demo.common.domain.ThreadPoolProperties;
+import com.demo.common.domain.ThreadPoolStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带监控的线程池,线程数及队列长度可以在运行期间调整
+ * 指标以 executor.* 注册到 micrometer,按 name 区分线程池:
+ * 线程数、排队数、由提交线程执行的任务数,以及任务排队、执行时间的分布
+ * 线程池满时与 CallerRunsPolicy 一致由提交任务的线程自己执行,并计入 executor.caller.runs
+ * 计时在 beforeExecute/afterExecute 中完成;设置了任务装饰器时队列中是装饰后的任务,
+ * remove、purge、shutdownNow 按提交的原始任务匹配及返回
+ */
+@Slf4j
+public class MonitoredThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final double P99 = 0.99;
+
+    private final String name;
+    private final ResizableBlockingQueue<Runnable> queue;
+    private final Counter callerRuns;
+    private final Counter rejected;
+    private final Timer waitTimer;
+    private final Timer runTimer;
+    /**
+     * 排队中的任务,key为队列中的(装饰后的)任务,开始执行或移出队列时删除
+     */
+    private final ConcurrentMap<Runnable, QueuedTask> queuedTasks = new ConcurrentHashMap<>();
+    /**
+     * 当前线程执行中任务的开始时间
+     */
+    private final ThreadLocal<Long> startTime = new ThreadLocal<>();
+    private volatile TaskDecorator taskDecorator;
+
+    public MonitoredThreadPoolExecutor(String name, ThreadPoolProperties properties, ThreadFactory threadFactory,
+                                       MeterRegistry meterRegistry) {
+        this(name, properties, new ResizableBlockingQueue<>(properties.getQueueCapacity()), threadFactory, meterRegistry);
+    }
+
+    private MonitoredThreadPoolExecutor(String name, ThreadPoolProperties properties, ResizableBlockingQueue<Runnable> queue,
+                                        ThreadFactory threadFactory, MeterRegistry meterRegistry) {
+        super(properties.getCorePoolSize(),
+                properties.getMaxPoolSize(),
+                properties.getKeepAliveSeconds(),
+                TimeUnit.SECONDS,
+                queue,
+                threadFactory);
+        this.name = name;
+        this.queue = queue;
+        Tags tags = Tags.of("name", name);
+        callerRuns = Counter.builder("executor.caller.runs")
+                .description("线程池满后由提交任务的线程自己执行的任务数").tags(tags).register(meterRegistry);
+        rejected = Counter.builder("executor.rejected")
+                .description("线程池关闭后被丢弃的任务数").tags(tags).register(meterRegistry);
+        waitTimer = Timer.builder("executor.wait")
+                .description("任务排队时间").tags(tags)
+                .publishPercentiles(P99).publishPercentileHistogram().register(meterRegistry);
+        runTimer = Timer.builder("executor.run")
+                .description("任务执行时间").tags(tags)
+                .publishPercentiles(P99).publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("executor.pool.core", this, ThreadPoolExecutor::getCorePoolSize).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.pool.max", this, ThreadPoolExecutor::getMaximumPoolSize).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.pool.size", this, ThreadPoolExecutor::getPoolSize).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.active", this, ThreadPoolExecutor::getActiveCount).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.queued", queue, ResizableBlockingQueue::size).tags(tags).register(meterRegistry);
+        Gauge.builder("executor.queue.capacity", queue, ResizableBlockingQueue::getCapacity).tags(tags).register(meterRegistry);
+        FunctionCounter.builder("executor.completed", this, ThreadPoolExecutor::getCompletedTaskCount).tags(tags).register(meterRegistry);
+        setRejectedExecutionHandler(new CountingCallerRunsPolicy());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        TaskDecorator decorator = taskDecorator;
+        Runnable task = decorator == null ? command : decorator.decorate(command);
+        queuedTasks.put(task, new QueuedTask(command, System.nanoTime()));
+        try {
+            super.execute(task);
+        } catch (RuntimeException e) {
+            queuedTasks.remove(task);
+            throw e;
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        startTime.set(recordWait(r));
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        Long start = startTime.get();
+        startTime.remove();
+        if (start != null) {
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        super.afterExecute(r, t);
+    }
+
+    /**
+     * 从队列中移除任务
+     *
+     * @param task 提交的原始任务
+     * @return 是否移除
+     */
+    @Override
+    public boolean remove(Runnable task) {
+        for (Map.Entry<Runnable, QueuedTask> entry : queuedTasks.entrySet()) {
+            if (entry.getValue().command == task) {
+                return removeQueued(entry.getKey());
+            }
+        }
+        return super.remove(task);
+    }
+
+    /**
+     * 移除队列中已取消的 Future,按提交的原始任务判断
+     */
+    @Override
+    public void purge() {
+        for (Runnable queued : getQueue()) {
+            QueuedTask task = queuedTasks.get(queued);
+            Runnable command = task == null ? queued : task.command;
+            if (command instanceof Future && ((Future<?>) command).isCancelled()) {
+                removeQueued(queued);
+            }
+        }
+        super.purge();
+    }
+
+    /**
+     * 立即关闭
+     *
+     * @return 未执行的原始任务
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> queued = super.shutdownNow();
+        List<Runnable> commands = new ArrayList<>(queued.size());
+        for (Runnable r : queued) {
+            QueuedTask task = queuedTasks.remove(r);
+            commands.add(task == null ? r : task.command);
+        }
+        return commands;
+    }
+
+    private boolean removeQueued(Runnable queued) {
+        boolean removed = super.remove(queued);
+        if (removed) {
+            queuedTasks.remove(queued);
+        }
+        return removed;
+    }
+
+    /**
+     * 设置任务装饰器,在提交任务的线程中调用
+     *
+     * @param taskDecorator 任务装饰器
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    /**
+     * 调整线程数及队列长度,参数为null时不调整
+     *
+     * @param corePoolSize    核心线程池大小
+     * @param maximumPoolSize 最大线程数
+     * @param queueCapacity   队列最大长度
+     */
+    public synchronized void resize(Integer corePoolSize, Integer maximumPoolSize, Integer queueCapacity) {
+        int core = corePoolSize == null ? getCorePoolSize() : corePoolSize;
+        int max = maximumPoolSize == null ? getMaximumPoolSize() : maximumPoolSize;
+        // 全部参数校验通过后再调整,避免只调整了一部分
+        if (core < 0 || max <= 0 || core > max) {
+            throw new IllegalArgumentException("线程数配置错误:core " + core + " max " + max);
+        }
+        if (queueCapacity != null && queueCapacity <= 0) {
+            throw new IllegalArgumentException("队列长度必须大于0:" + queueCapacity);
+        }
+        // 核心线程数不能大于最大线程数,按调整方向决定先后顺序
+        if (core > getMaximumPoolSize()) {
+            setMaximumPoolSize(max);
+            setCorePoolSize(core);
+        } else {
+            setCorePoolSize(core);
+            setMaximumPoolSize(max);
+        }
+        if (queueCapacity != null) {
+            queue.setCapacity(queueCapacity);
+        }
+        log.info("线程池已调整;{} core {} max {} queue {}", name, core, max, queue.getCapacity());
+    }
+
+    /**
+     * 获取运行指标
+     *
+     * @return 运行指标
+     */
+    public ThreadPoolStats stats() {
+        ThreadPoolStats stats = new ThreadPoolStats();
+        stats.setName(name);
+        stats.setCorePoolSize(getCorePoolSize());
+        stats.setMaximumPoolSize(getMaximumPoolSize());
+        stats.setPoolSize(getPoolSize());
+        stats.setLargestPoolSize(getLargestPoolSize());
+        stats.setActiveCount(getActiveCount());
+        stats.setQueueSize(queue.size());
+        stats.setQueueCapacity(queue.getCapacity());
+        stats.setCompletedTaskCount(getCompletedTaskCount());
+        stats.setCallerRunsCount((long) callerRuns.count());
+        stats.setRejectedCount((long) rejected.count());
+        stats.setWaitMeanMillis(waitTimer.mean(TimeUnit.MILLISECONDS));
+        stats.setWaitP99Millis(p99(waitTimer));
+        stats.setRunMeanMillis(runTimer.mean(TimeUnit.MILLISECONDS));
+        stats.setRunP99Millis(p99(runTimer));
+        return stats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static double p99(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            if (percentile.percentile() == P99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 记录任务排队时间
+     *
+     * @param task 任务
+     * @return 开始执行的时间
+     */
+    private long recordWait(Runnable task) {
+        long start = System.nanoTime();
+        QueuedTask queued = queuedTasks.remove(task);
+        if (queued != null) {
+            waitTimer.record(start - queued.submitTime, TimeUnit.NANOSECONDS);
+        }
+        return start;
+    }
+
+    /**
+     * 排队中任务的原始任务及提交时间
+     */
+    private static class QueuedTask {
+        private final Runnable command;
+        private final long submitTime;
+
+        QueuedTask(Runnable command, long submitTime) {
+            this.command = command;
+            this.submitTime = submitTime;
+        }
+    }
+
+    /**
+     * 与 CallerRunsPolicy 一致,线程池满时由提交任务的线程执行,线程池关闭后丢弃,分别计数
+     */
+    private class CountingCallerRunsPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                queuedTasks.remove(r);
+                rejected.increment();
+                log.warn("线程池已关闭,丢弃任务;{}", name);
+                return;
+            }
+            callerRuns.increment();
+            long start = recordWait(r);
+            try {
+                r.run();
+            } finally {
+                runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.common.executor;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为请求线程设置截止时间,请求中 submit 到 executorService 的任务超过该时间仍未开始执行时不再执行
+ */
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final long requestTimeoutMillis;
+
+    public RequestDeadlineFilter(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        TaskDeadline.start(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TaskDeadline.clear();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return requestTimeoutMillis <= 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.demo.common.executor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 当前线程的截止时间,提交到 executorService 的任务会继承提交线程的截止时间
+ * submit 提交的任务开始执行时已超过截止时间则不再执行,见 {@link ContextTaskDecorator}
+ * 请求线程由 {@link RequestDeadlineFilter} 按 thread-pool.request-timeout-millis 设置
+ */
+public final class TaskDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private TaskDeadline() {
+    }
+
+    /**
+     * 设置当前线程的截止时间为当前时间之后的 timeout
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     */
+    public static void start(long timeout, TimeUnit unit) {
+        DEADLINE.set(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * 清除当前线程的截止时间
+     */
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * 当前线程的截止时间
+     *
+     * @return System.nanoTime() 基准的截止时间,未设置时返回null
+     */
+    public static Long get() {
+        return DEADLINE.get();
+    }
+
+    /**
+     * 剩余时间
+     *
+     * @param unit 时间单位
+     * @return 剩余时间,已超时返回0,未设置截止时间返回 Long.MAX_VALUE
+     */
+    public static long remaining(TimeUnit unit) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 是否已超过截止时间
+     *
+     * @return 未设置截止时间时返回false
+     */
+    public static boolean isExpired() {
+        Long deadline = DEADLINE.get();
+        return deadline != null && System.nanoTime() - deadline >= 0;
+    }
+
+    static void set(Long deadline) {
+        if (deadline == null) {
+            DEADLINE.remove();
+        } else {
+            DEADLINE.set(deadline);
+        }
+    }
+}
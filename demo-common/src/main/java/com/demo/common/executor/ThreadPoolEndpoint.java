@@ -0,0 +1,61 @@
+package com.demo.common.executor;
+
+import com.demo.common.domain.ThreadPoolStats;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 线程池监控端点 /actuator/threadpool
+ * GET 查询全部线程池 ; GET /{name} 查询单个 ; POST /{name} 调整线程数及队列长度,重启后恢复为配置值
+ */
+@Endpoint(id = "threadpool")
+public class ThreadPoolEndpoint {
+
+    private final Map<String, MonitoredThreadPoolExecutor> executors;
+
+    public ThreadPoolEndpoint(Map<String, MonitoredThreadPoolExecutor> executors) {
+        this.executors = executors;
+    }
+
+    @ReadOperation
+    public List<ThreadPoolStats> pools() {
+        List<ThreadPoolStats> stats = new ArrayList<>(executors.size());
+        for (MonitoredThreadPoolExecutor executor : executors.values()) {
+            stats.add(executor.stats());
+        }
+        return stats;
+    }
+
+    @ReadOperation
+    public ThreadPoolStats pool(@Selector String name) {
+        return executor(name).stats();
+    }
+
+    @WriteOperation
+    public ThreadPoolStats resize(@Selector String name, @Nullable Integer corePoolSize,
+                                  @Nullable Integer maximumPoolSize, @Nullable Integer queueCapacity) {
+        MonitoredThreadPoolExecutor executor = executor(name);
+        try {
+            executor.resize(corePoolSize, maximumPoolSize, queueCapacity);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        return executor.stats();
+    }
+
+    private MonitoredThreadPoolExecutor executor(String name) {
+        MonitoredThreadPoolExecutor executor = executors.get(name);
+        if (executor == null) {
+            throw new InvalidEndpointRequestException("线程池不存在:" + name, "线程池不存在");
+        }
+        return executor;
+    }
+}
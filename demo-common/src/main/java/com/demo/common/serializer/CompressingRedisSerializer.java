@@ -0,0 +1,131 @@
+package com.demo.common.serializer;
+
+import com.demo.common.domain.RedisCompressionStats;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压缩大值的redis序列化器,包装实际的序列化器
+ * 序列化后不小于阈值的值使用LZ4压缩,格式为 : 1字节压缩标识 + 4字节原始长度 + 压缩数据;
+ * 读取时按压缩标识区分,未压缩的值(低于阈值或开启压缩前写入的)直接交给实际的序列化器
+ * 注意 : 压缩写入的值只能由本序列化器读取,关闭压缩前需要清理已压缩的数据
+ */
+public class CompressingRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * 压缩标识,JSON及Smile序列化结果都不会以该字节开头
+     */
+    private static final byte COMPRESSED = 0x00;
+    /**
+     * 压缩标识及原始长度占用的字节数
+     */
+    private static final int HEADER_LENGTH = 5;
+
+    private final RedisSerializer<Object> delegate;
+    private final int threshold;
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressAttempts = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressed = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /**
+     * @param delegate  实际的序列化器
+     * @param threshold 压缩阈值,序列化后不小于该字节数的值才压缩
+     */
+    public CompressingRedisSerializer(RedisSerializer<Object> delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = Math.max(threshold, HEADER_LENGTH + 1);
+        // 优先使用JNI实现,不可用时回退到纯Java实现
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes == null || bytes.length < threshold) {
+            skipped.increment();
+            return bytes;
+        }
+        long start = System.nanoTime();
+        byte[] dest = new byte[HEADER_LENGTH + compressor.maxCompressedLength(bytes.length)];
+        int length = compressor.compress(bytes, 0, bytes.length, dest, HEADER_LENGTH);
+        compressNanos.add(System.nanoTime() - start);
+        compressAttempts.increment();
+        if (HEADER_LENGTH + length >= bytes.length) {
+            // 压缩后未变小,原样写入
+            skipped.increment();
+            return bytes;
+        }
+        dest[0] = COMPRESSED;
+        dest[1] = (byte) (bytes.length >>> 24);
+        dest[2] = (byte) (bytes.length >>> 16);
+        dest[3] = (byte) (bytes.length >>> 8);
+        dest[4] = (byte) bytes.length;
+        compressed.increment();
+        rawBytes.add(bytes.length);
+        compressedBytes.add(HEADER_LENGTH + length);
+        byte[] result = new byte[HEADER_LENGTH + length];
+        System.arraycopy(dest, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length <= HEADER_LENGTH || bytes[0] != COMPRESSED) {
+            return delegate.deserialize(bytes);
+        }
+        long start = System.nanoTime();
+        int length = (bytes[1] & 0xFF) << 24 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 8 | (bytes[4] & 0xFF);
+        byte[] raw;
+        try {
+            raw = new byte[length];
+            // 使用校验边界的解压器,数据损坏时抛出异常而不是读越界
+            if (decompressor.decompress(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, raw, 0, length) != length) {
+                throw new IllegalStateException("decompressed length mismatch");
+            }
+        } catch (Exception e) {
+            throw new SerializationException("Could not decompress: " + e.getMessage(), e);
+        }
+        decompressNanos.add(System.nanoTime() - start);
+        decompressed.increment();
+        return delegate.deserialize(raw);
+    }
+
+    /**
+     * 获取压缩统计
+     *
+     * @return 启动以来的累计统计
+     */
+    public RedisCompressionStats stats() {
+        RedisCompressionStats stats = new RedisCompressionStats();
+        stats.setThreshold(threshold);
+        stats.setCompressed(compressed.sum());
+        stats.setSkipped(skipped.sum());
+        stats.setRawBytes(rawBytes.sum());
+        stats.setCompressedBytes(compressedBytes.sum());
+        stats.setRatio(stats.getRawBytes() == 0 ? 1 : (double) stats.getCompressedBytes() / stats.getRawBytes());
+        stats.setAvgCompressMicros(average(compressNanos.sum(), compressAttempts.sum()));
+        stats.setDecompressed(decompressed.sum());
+        stats.setAvgDecompressMicros(average(decompressNanos.sum(), stats.getDecompressed()));
+        return stats;
+    }
+
+    private static double average(long nanos, long count) {
+        return count == 0 ? 0 : (double) nanos / count / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
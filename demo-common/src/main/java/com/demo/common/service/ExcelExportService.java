@@ -0,0 +1,43 @@
+package com.demo.common.service;
+
+import com.demo.common.domain.ExcelExportJob;
+import com.demo.common.utils.ExcelTemplate;
+
+import java.io.File;
+
+/**
+ * excel异步导出服务
+ * 提交后立即返回任务id,导出在独立的有界线程池中写入本地临时目录,任务状态及进度保存在redis
+ */
+public interface ExcelExportService {
+
+    /**
+     * 提交导出任务,数据分页拉取,导出规则同 {@link ExcelTemplate#exportBig}
+     *
+     * @param fileName   下载文件名,不含后缀
+     * @param titleName  标题
+     * @param cls        实体类型
+     * @param pageLoader 分页查询回调,在导出线程中执行
+     * @param pageSize   每页条数
+     * @param <T>        实体类型
+     * @return 任务id
+     */
+    <T> String submit(String fileName, String titleName, Class<T> cls, ExcelTemplate.PageLoader<T> pageLoader, int pageSize);
+
+    /**
+     * 查询导出任务
+     *
+     * @param jobId 任务id
+     * @return 导出任务,不存在或已过期时返回null
+     */
+    ExcelExportJob getJob(String jobId);
+
+    /**
+     * 获取导出完成的文件
+     * 文件保存在执行任务的节点本地,多节点部署时下载请求需路由到同一节点
+     *
+     * @param jobId 任务id
+     * @return 导出文件,任务未完成或文件已清理时返回null
+     */
+    File getFile(String jobId);
+}
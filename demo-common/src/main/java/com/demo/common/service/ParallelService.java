@@ -0,0 +1,80 @@
+package com.demo.common.service;
+
+import com.demo.common.domain.ParallelResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 并行执行多个任务并汇总结果,基于 executorService,用于聚合多个redis、http调用,耗时取最慢的一个而不是总和
+ * 超时时间不会超过当前线程的 {@link com.demo.common.executor.TaskDeadline};结束时未完成的任务会被取消(中断)
+ * 不要在 executorService 的任务中再调用,线程池满时可能互相等待
+ */
+public interface ParallelService {
+
+    /**
+     * 并行执行全部任务,任一任务失败或超时即取消其余任务并抛出异常
+     *
+     * @param tasks   任务
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @param <T>     结果类型
+     * @return 结果,与任务顺序一致
+     */
+    <T> List<T> allOf(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit);
+
+    /**
+     * 并行执行全部任务,返回部分结果,单个任务失败不影响其他任务
+     *
+     * @param tasks   任务
+     * @param timeout 超时时间,超时后返回已完成的结果
+     * @param unit    时间单位
+     * @param <T>     结果类型
+     * @return 部分结果
+     */
+    <T> ParallelResult<T> allSettled(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit);
+
+    /**
+     * 并行执行全部任务,返回最先成功的结果并取消其余任务
+     *
+     * @param tasks   任务
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @param <T>     结果类型
+     * @return 最先成功的结果,全部失败或超时抛出异常
+     */
+    <T> T anyOf(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit);
+
+    /**
+     * 按元素并行处理,同时执行的任务不超过 maxConcurrency,任一元素失败或超时即取消其余任务并抛出异常
+     *
+     * @param items          元素
+     * @param mapper         处理方法
+     * @param maxConcurrency 最大并发数
+     * @param timeout        超时时间
+     * @param unit           时间单位
+     * @param <T>            元素类型
+     * @param <R>            结果类型
+     * @return 结果,与元素顺序一致
+     */
+    <T, R> List<R> parallelMap(Collection<T> items, Function<? super T, ? extends R> mapper, int maxConcurrency,
+                               long timeout, TimeUnit unit);
+
+    /**
+     * 按元素并行处理,同时执行的任务不超过 maxConcurrency,返回部分结果
+     *
+     * @param items          元素
+     * @param mapper         处理方法
+     * @param maxConcurrency 最大并发数
+     * @param timeout        超时时间,超时后返回已完成的结果,未开始的元素计入未完成
+     * @param unit           时间单位
+     * @param <T>            元素类型
+     * @param <R>            结果类型
+     * @return 部分结果
+     */
+    <T, R> ParallelResult<R> parallelMapSettled(Collection<T> items, Function<? super T, ? extends R> mapper,
+                                                int maxConcurrency, long timeout, TimeUnit unit);
+}
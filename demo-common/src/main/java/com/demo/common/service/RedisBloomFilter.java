@@ -0,0 +1,48 @@
+package com.demo.common.service;
+
+import java.util.Collection;
+
+/**
+ * 基于redis位图的布隆过滤器,由 {@link RedisService#bloomFilter(String, long, double)} 创建
+ * 判断不存在时一定不存在,判断存在时有误判率的概率实际不存在;不支持删除
+ */
+public interface RedisBloomFilter {
+
+    /**
+     * 添加属性
+     *
+     * @param value 属性值
+     * @return 是否为新属性,误判时新属性也会返回false
+     */
+    boolean add(String value);
+
+    /**
+     * 批量添加属性,每批在一次脚本调用中完成
+     *
+     * @param values 属性值
+     * @return 新属性个数
+     */
+    long addAll(Collection<String> values);
+
+    /**
+     * 判断属性是否可能存在
+     *
+     * @param value 属性值
+     * @return false 一定不存在 ; true 可能存在
+     */
+    boolean mightContain(String value);
+
+    /**
+     * 位图大小
+     *
+     * @return 位数
+     */
+    long bitSize();
+
+    /**
+     * 每个属性占用的位数
+     *
+     * @return 哈希函数个数
+     */
+    int hashFunctions();
+}
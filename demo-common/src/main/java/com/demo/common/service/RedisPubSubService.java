@@ -0,0 +1,52 @@
+package com.demo.common.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * redis pub/sub 订阅服务,接收 {@link RedisService#publish} 推送的消息
+ * 除了手动注册,spring bean中加了 {@link com.demo.common.annotation.RedisMessageListener}、
+ * {@link com.demo.common.annotation.RedisKeyExpiredListener} 的方法会在启动时自动注册
+ */
+public interface RedisPubSubService {
+
+    /**
+     * 订阅消息通道
+     *
+     * @param channel 消息通道
+     * @param type    消息类型
+     * @param handler 消息处理
+     * @param <T>     消息类型
+     */
+    <T> void subscribe(String channel, Class<T> type, Consumer<T> handler);
+
+    /**
+     * 按通配符订阅消息通道
+     *
+     * @param pattern 通配符,如 order:*
+     * @param type    消息类型
+     * @param handler 消息处理
+     * @param <T>     消息类型
+     */
+    <T> void pSubscribe(String pattern, Class<T> type, Consumer<T> handler);
+
+    /**
+     * 批量订阅消息通道,攒够 batchSize 条或等待 batchWindowMillis 后一次处理,适用于高频通道
+     *
+     * @param channel           消息通道
+     * @param type              消息类型
+     * @param batchSize         每批最多的消息数
+     * @param batchWindowMillis 攒批的最长等待时间,单位毫秒
+     * @param handler           批量消息处理
+     * @param <T>               消息类型
+     */
+    <T> void subscribeBatch(String channel, Class<T> type, int batchSize, long batchWindowMillis, Consumer<List<T>> handler);
+
+    /**
+     * 监听key过期,需要开启 spring.redis.keyEventExpired
+     *
+     * @param keyPrefix 只接收以该前缀开头的key,为空时接收全部
+     * @param handler   过期key处理
+     */
+    void onKeyExpired(String keyPrefix, Consumer<String> handler);
+}
@@ -1,7 +1,10 @@
 package com.demo.common.service;
 
 import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ZSetOperations;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -149,7 +152,7 @@ public interface RedisService {
     void hSet(String key, String hashKey, Object value);
 
     /**
-     * 直接获取整个Hash结构
+     * 直接获取整个Hash结构,大Hash使用 {@link #hScan(String, String, long)}
      *
      * @param key 字段key
      * @return Hash结构数据
@@ -212,7 +215,7 @@ public interface RedisService {
     Long hDecr(String key, String hashKey, Long delta);
 
     /**
-     * 获取Set结构
+     * 获取Set结构,大Set使用 {@link #sScan(String, String, long)}
      *
      * @param key 字段key
      * @return Set结构
@@ -339,6 +342,245 @@ public interface RedisService {
      */
     Long lRemove(String key, long count, Object value);
 
+    /**
+     * 向ZSet结构中添加属性,已存在时更新分数
+     *
+     * @param key   字段key
+     * @param value 属性值
+     * @param score 分数
+     * @return 是否新增
+     */
+    Boolean zAdd(String key, Object value, double score);
+
+    /**
+     * 向ZSet结构中批量添加属性,已存在时更新分数,每批使用一条ZADD,多批在一个pipeline中提交
+     *
+     * @param key    字段key
+     * @param scores 属性值及分数
+     * @return 新增个数
+     */
+    Long zAdd(String key, Map<?, Double> scores);
+
+    /**
+     * 增加ZSet属性的分数,属性不存在时新增
+     *
+     * @param key   字段key
+     * @param value 属性值
+     * @param delta 增加的分数,可以为负数
+     * @return 增加后的分数
+     */
+    Double zIncrBy(String key, Object value, double delta);
+
+    /**
+     * 按排名获取ZSet属性及分数,分数从低到高
+     *
+     * @param key   字段key
+     * @param start 开始排名,从0开始
+     * @param end   结束排名,包含,-1为最后一名
+     * @return 属性值及分数
+     */
+    Set<ZSetOperations.TypedTuple<Object>> zRangeWithScores(String key, long start, long end);
+
+    /**
+     * 按排名获取ZSet属性及分数,分数从高到低,适用于排行榜
+     *
+     * @param key   字段key
+     * @param start 开始排名,从0开始
+     * @param end   结束排名,包含,-1为最后一名
+     * @return 属性值及分数
+     */
+    Set<ZSetOperations.TypedTuple<Object>> zRevRangeWithScores(String key, long start, long end);
+
+    /**
+     * 按分数范围分页获取ZSet属性及分数,分数从低到高
+     *
+     * @param key    字段key
+     * @param min    最小分数,包含
+     * @param max    最大分数,包含
+     * @param offset 跳过的个数
+     * @param count  最多返回的个数
+     * @return 属性值及分数
+     */
+    Set<ZSetOperations.TypedTuple<Object>> zRangeByScoreWithScores(String key, double min, double max, long offset, long count);
+
+    /**
+     * 获取属性按分数从高到低的排名
+     *
+     * @param key   字段key
+     * @param value 属性值
+     * @return 排名,从0开始,属性不存在时为null
+     */
+    Long zRevRank(String key, Object value);
+
+    /**
+     * 获取属性的分数
+     *
+     * @param key   字段key
+     * @param value 属性值
+     * @return 分数,属性不存在时为null
+     */
+    Double zScore(String key, Object value);
+
+    /**
+     * 按分数范围移除ZSet属性
+     *
+     * @param key 字段key
+     * @param min 最小分数,包含
+     * @param max 最大分数,包含
+     * @return 移除个数
+     */
+    Long zRemRangeByScore(String key, double min, double max);
+
+    /**
+     * 获取ZSet结构的长度
+     *
+     * @param key 字段key
+     * @return 长度
+     */
+    Long zCard(String key);
+
+    /**
+     * 滑动窗口限流,在一个lua脚本中完成过期记录清理、计数及记录,按redis服务器时间计算,各节点时钟不一致不影响
+     *
+     * @param key    限流key
+     * @param limit  窗口内最多允许的次数
+     * @param window 窗口长度
+     * @param unit   窗口长度单位
+     * @return 是否允许本次请求
+     */
+    boolean slidingWindowAcquire(String key, long limit, long window, TimeUnit unit);
+
+    /**
+     * 向HyperLogLog添加属性,用于统计不重复个数,每个key最多占用12KB,误差约0.81%
+     *
+     * @param key    字段key
+     * @param values 属性值,按UTF-8计数,与序列化方式无关
+     * @return 1 估算个数有变化 ; 0 无变化
+     */
+    Long pfAdd(String key, String... values);
+
+    /**
+     * 获取HyperLogLog估算的不重复个数,多个key时为并集的个数
+     *
+     * @param keys 字段key
+     * @return 估算的不重复个数
+     */
+    Long pfCount(String... keys);
+
+    /**
+     * 合并多个HyperLogLog,如将每日的访客合并为每周的访客
+     *
+     * @param destKey    合并结果的key
+     * @param sourceKeys 需要合并的key
+     */
+    void pfMerge(String destKey, String... sourceKeys);
+
+    /**
+     * 获取布隆过滤器,位图大小及哈希函数个数按预计数量及误判率计算,同一个key需要使用相同的参数
+     * 占用内存约为 -n*ln(p)/(ln2)^2 位,如100万个属性、1%误判率约1.2MB
+     *
+     * @param key                字段key
+     * @param expectedInsertions 预计添加的属性个数
+     * @param fpp                误判率,如0.01
+     * @return 布隆过滤器
+     */
+    RedisBloomFilter bloomFilter(String key, long expectedInsertions, double fpp);
+
+    /**
+     * 批量保存属性,按批次使用MSET
+     *
+     * @param map 字段key及字段值
+     */
+    void mSet(Map<String, ?> map);
+
+    /**
+     * 批量保存属性,统一过期时间,使用pipeline按批次提交
+     *
+     * @param map  字段key及字段值
+     * @param time 过期时间,小于等于0时不过期
+     */
+    void mSet(Map<String, ?> map, long time);
+
+    /**
+     * 批量保存属性,每个key单独指定过期时间,使用pipeline按批次提交
+     *
+     * @param map   字段key及字段值
+     * @param times 字段key对应的过期时间,没有或小于等于0时不过期
+     */
+    void mSet(Map<String, ?> map, Map<String, Long> times);
+
+    /**
+     * 批量获取属性,按批次使用MGET并通过pipeline一次提交
+     *
+     * @param keys 字段key集合
+     * @return 字段值,与keys顺序一致,不存在的为null
+     */
+    List<Object> mGet(Collection<String> keys);
+
+    /**
+     * 批量设置多个Hash结构,使用pipeline按批次提交
+     *
+     * @param maps 字段key及对应的Hash结构
+     * @param time 过期时间,小于等于0时不过期
+     */
+    void hSetAll(Map<String, ? extends Map<String, ?>> maps, long time);
+
+    /**
+     * 批量向多个Set结构中添加属性,使用pipeline按批次提交
+     *
+     * @param values 字段key及对应的set属性值
+     * @param time   过期时间,小于等于0时不过期
+     */
+    void sAddAll(Map<String, ? extends Collection<?>> values, long time);
+
+    /**
+     * 批量向多个List结构中添加属性,使用pipeline按批次提交
+     *
+     * @param values 字段key及对应的属性值
+     * @param time   过期时间,小于等于0时不过期
+     */
+    void lPushAll(Map<String, ? extends Collection<?>> values, long time);
+
+    /**
+     * 按通配符逐批遍历key,每次向redis取一批,不会一次阻塞redis
+     * 注意 : 使用后需要关闭,建议使用 try-with-resources;遍历期间新增或删除的key可能遍历不到或重复
+     *
+     * @param pattern 通配符,如 user:*
+     * @param count   每批数量的建议值
+     * @return key游标
+     */
+    Cursor<String> scan(String pattern, long count);
+
+    /**
+     * 逐批遍历Hash结构,大Hash使用该方法代替 {@link #hGetAll(String)}
+     * 注意 : 使用后需要关闭,建议使用 try-with-resources
+     *
+     * @param key     字段key
+     * @param pattern hash内字段key的通配符,为null时遍历全部
+     * @param count   每批数量的建议值
+     * @return Hash字段游标
+     */
+    Cursor<Map.Entry<Object, Object>> hScan(String key, String pattern, long count);
+
+    /**
+     * 逐批遍历Set结构,大Set使用该方法代替 {@link #sMembers(String)}
+     * 注意 : 使用后需要关闭,建议使用 try-with-resources
+     *
+     * @param key     字段key
+     * @param pattern 属性值的通配符,为null时遍历全部
+     * @param count   每批数量的建议值
+     * @return Set属性游标
+     */
+    Cursor<Object> sScan(String key, String pattern, long count);
+
+    /**
+     * 按通配符删除key,逐批遍历并使用pipeline提交UNLINK,大key在redis后台线程释放内存
+     *
+     * @param pattern 通配符,如 user:*
+     * @return 删除的key数量
+     */
+    long delByPattern(String pattern);
+
     /**
      * 是否存在key，存在不操作,不存在设置值
      *
@@ -350,7 +592,7 @@ public interface RedisService {
     boolean existingKey(String key, String value, Long timeout);
 
     /**
-     * 向指定的消息通道推送消息，适用于 pus/sub模式
+     * 向指定的消息通道推送消息，适用于 pus/sub模式,通过 RedisPubSubService 订阅
      *
      * @param channel 消息通道
      * @param msg     需要推送的消息对象
@@ -372,7 +614,9 @@ public interface RedisService {
      *
      * @param lockKey lockKey
      * @return Boolean
+     * @deprecated 依赖各节点时钟且释放时不校验持有者,使用 {@link #tryLock(String, long, long, TimeUnit)}
      */
+    @Deprecated
     Boolean lock(String lockKey);
 
     /**
@@ -381,14 +625,48 @@ public interface RedisService {
      * @param lockKey     lockKey
      * @param releaseTime 释放时间，单位毫米
      * @return Boolean
+     * @deprecated 依赖各节点时钟且释放时不校验持有者,使用 {@link #tryLock(String, long, long, TimeUnit)}
      */
+    @Deprecated
     Boolean lock(String lockKey, Long releaseTime);
 
     /**
      * 手动释放锁
      *
      * @param lockKey lockKey
+     * @deprecated 配合 {@link #lock(String)} 使用,新代码使用 {@link #releaseLock(String)}
      */
+    @Deprecated
     void unlock(String lockKey);
+
+    /**
+     * 获取可重入分布式锁,持有期间由看门狗自动续期,直到调用 {@link #releaseLock(String)}
+     *
+     * @param lockKey  lockKey
+     * @param waitTime 最长等待时间,小于等于0时只尝试一次
+     * @param unit     时间单位
+     * @return 是否获取到锁
+     */
+    boolean tryLock(String lockKey, long waitTime, TimeUnit unit);
+
+    /**
+     * 获取可重入分布式锁,同一线程可重复获取,释放相同次数后才真正释放
+     * 等待期间订阅释放通知,不轮询redis
+     *
+     * @param lockKey   lockKey
+     * @param waitTime  最长等待时间,小于等于0时只尝试一次
+     * @param leaseTime 持有时间,到期自动释放;小于等于0时由看门狗自动续期
+     * @param unit      时间单位
+     * @return 是否获取到锁
+     */
+    boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit unit);
+
+    /**
+     * 释放 {@link #tryLock(String, long, long, TimeUnit)} 获取的锁,只有持有锁的线程可以释放
+     *
+     * @param lockKey lockKey
+     * @throws IllegalMonitorStateException 当前线程未持有锁或锁已过期
+     */
+    void releaseLock(String lockKey);
 }
 
@@ -0,0 +1,31 @@
+package com.demo.common.service;
+
+import com.demo.common.domain.StreamConsumerMetrics;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * redis stream 消费组服务
+ * 除了手动注册,spring bean中加了 {@link com.demo.common.annotation.RedisStreamListener} 的方法会在启动时自动注册
+ */
+public interface RedisStreamConsumerService {
+
+    /**
+     * 注册消费者,消费组不存在时自动创建
+     *
+     * @param streamKey 消息通道,不带 STREAM: 前缀
+     * @param group     消费组
+     * @param type      消息类型
+     * @param handler   消息处理,正常返回后确认消息
+     * @param <T>       消息类型
+     */
+    <T> void subscribe(String streamKey, String group, Class<T> type, Consumer<T> handler);
+
+    /**
+     * 获取各消费者的运行指标
+     *
+     * @return 运行指标
+     */
+    List<StreamConsumerMetrics> metrics();
+}
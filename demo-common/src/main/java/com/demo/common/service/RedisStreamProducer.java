@@ -0,0 +1,21 @@
+package com.demo.common.service;
+
+import org.springframework.data.redis.connection.stream.RecordId;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * redis stream 异步批量发送
+ * 消息先放入内存队列,由后台线程按批次用pipeline发送,消息格式与 {@link RedisService#sendMsgForStream} 一致
+ */
+public interface RedisStreamProducer {
+
+    /**
+     * 异步发送消息,消息在调用方线程序列化
+     *
+     * @param streamKey 需要发动到哪个消息通道上去
+     * @param msg       消息内容
+     * @return 发送成功后返回消息id;队列已满按背压策略拒绝或redis写入失败时异常结束
+     */
+    CompletableFuture<RecordId> send(String streamKey, Object msg);
+}
@@ -0,0 +1,265 @@
+package com.demo.common.service.impl;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import com.demo.common.domain.ExcelExportJob;
+import com.demo.common.enums.ExportJobStatus;
+import com.demo.common.exception.Asserts;
+import com.demo.common.service.ExcelExportService;
+import com.demo.common.service.RedisService;
+import com.demo.common.utils.ExcelTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * excel异步导出实现类
+ */
+@Slf4j
+public class ExcelExportServiceImpl implements ExcelExportService {
+
+    /**
+     * 导出任务 key 的统一前缀
+     */
+    public static final String JOB_KEY_PREFIX = "EXCEL:EXPORT:JOB:";
+    /**
+     * 每写出多少行更新一次进度
+     */
+    private static final int PROGRESS_INTERVAL = 1000;
+    /**
+     * 导出文件后缀
+     */
+    private static final String FILE_SUFFIX = ".xlsx";
+    /**
+     * 写入中的临时文件后缀
+     */
+    private static final String PART_SUFFIX = ".part";
+    /**
+     * 停止服务时等待导出线程响应中断的时间,单位秒
+     */
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    /**
+     * 导出文件临时目录
+     */
+    @Value("${excel.export.spool-dir:${java.io.tmpdir}/excel-export}")
+    private String spoolDir;
+    /**
+     * 导出线程数
+     */
+    @Value("${excel.export.threads:2}")
+    private int threads;
+    /**
+     * 排队任务数,超出后拒绝提交
+     */
+    @Value("${excel.export.queue-capacity:20}")
+    private int queueCapacity;
+    /**
+     * 任务及文件保留时间,单位小时
+     */
+    @Value("${excel.export.retention-hours:24}")
+    private long retentionHours;
+
+    @Resource
+    private RedisService redisService;
+
+    /**
+     * 本节点排队及执行中的任务,停止服务时标记为失败
+     */
+    private final ConcurrentMap<String, ExcelExportJob> activeJobs = new ConcurrentHashMap<>();
+
+    private Path spoolPath;
+    private ThreadPoolExecutor exportExecutor;
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolPath = Files.createDirectories(Paths.get(spoolDir));
+        // 拒绝而不是在调用方线程执行,避免导出占用请求线程
+        exportExecutor = new ThreadPoolExecutor(threads,
+                threads,
+                0,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                ThreadFactoryBuilder.create().setNamePrefix("excel-export-").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        cleaner = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("excel-export-cleaner-").setDaemon(true).build());
+        cleaner.scheduleWithFixedDelay(this::cleanExpiredFiles, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleaner.shutdownNow();
+        exportExecutor.shutdownNow();
+        try {
+            exportExecutor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 未开始及未能及时中断的任务不会再完成,标记为失败,避免一直显示为排队或执行中
+        for (String jobId : activeJobs.keySet()) {
+            ExcelExportJob job = activeJobs.remove(jobId);
+            if (job != null) {
+                job.setStatus(ExportJobStatus.FAILED);
+                job.setMessage("服务停止,导出已中断");
+                job.setFinishTime(LocalDateTime.now());
+                save(job);
+            }
+        }
+    }
+
+    @Override
+    public <T> String submit(String fileName, String titleName, Class<T> cls, ExcelTemplate.PageLoader<T> pageLoader, int pageSize) {
+        Asserts.isTrue(pageSize > 0, "每页条数必须大于0");
+        ExcelExportJob job = new ExcelExportJob();
+        job.setJobId(IdUtil.fastSimpleUUID());
+        job.setFileName(fileName);
+        job.setStatus(ExportJobStatus.WAITING);
+        job.setCreateTime(LocalDateTime.now());
+        save(job);
+        activeJobs.put(job.getJobId(), job);
+        try {
+            exportExecutor.execute(() -> run(job, titleName, cls, pageLoader, pageSize));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.getJobId());
+            redisService.del(JOB_KEY_PREFIX + job.getJobId());
+            Asserts.fail("导出任务过多,请稍后再试");
+        }
+        return job.getJobId();
+    }
+
+    @Override
+    public ExcelExportJob getJob(String jobId) {
+        Object job = redisService.get(JOB_KEY_PREFIX + jobId);
+        return job instanceof ExcelExportJob ? (ExcelExportJob) job : null;
+    }
+
+    @Override
+    public File getFile(String jobId) {
+        ExcelExportJob job = getJob(jobId);
+        if (job == null || job.getStatus() != ExportJobStatus.SUCCESS) {
+            return null;
+        }
+        File file = spoolPath.resolve(job.getJobId() + FILE_SUFFIX).toFile();
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * 执行导出,先写入临时文件,完成后再改名,下载时不会读到未写完的文件
+     */
+    private <T> void run(ExcelExportJob job, String titleName, Class<T> cls, ExcelTemplate.PageLoader<T> pageLoader, int pageSize) {
+        job.setStatus(ExportJobStatus.RUNNING);
+        save(job);
+        Path part = spoolPath.resolve(job.getJobId() + PART_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                Iterator<T> iterator = new ProgressIterator<>(new ExcelTemplate.PageIterator<>(pageLoader, pageSize), job);
+                ExcelTemplate.exportBig(out, iterator, cls, titleName);
+            }
+            Files.move(part, spoolPath.resolve(job.getJobId() + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            job.setStatus(ExportJobStatus.SUCCESS);
+        } catch (Exception e) {
+            log.error("异步导出失败;{}", job.getJobId(), e);
+            job.setStatus(ExportJobStatus.FAILED);
+            job.setMessage(e.getMessage());
+            deleteQuietly(part);
+        }
+        job.setFinishTime(LocalDateTime.now());
+        // 已被 destroy 标记为失败的任务不再覆盖状态,两边都以从 activeJobs 中移除成功为准
+        if (activeJobs.remove(job.getJobId()) != null) {
+            save(job);
+        }
+    }
+
+    private void save(ExcelExportJob job) {
+        redisService.set(JOB_KEY_PREFIX + job.getJobId(), job, TimeUnit.HOURS.toSeconds(retentionHours));
+    }
+
+    /**
+     * 清理超过保留时间的导出文件,本节点仍在写入的临时文件跳过
+     */
+    private void cleanExpiredFiles() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolPath)) {
+            for (Path file : files) {
+                if (isWriting(file)) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(file).toMillis() < expireBefore) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.error("清理导出文件失败", e);
+        }
+    }
+
+    private boolean isWriting(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(PART_SUFFIX)
+                && activeJobs.containsKey(name.substring(0, name.length() - PART_SUFFIX.length()));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导出文件失败;{}", file, e);
+        }
+    }
+
+    /**
+     * 统计写出行数并定期更新任务进度
+     */
+    private class ProgressIterator<T> implements Iterator<T> {
+        private final Iterator<T> delegate;
+        private final ExcelExportJob job;
+
+        ProgressIterator(Iterator<T> delegate, ExcelExportJob job) {
+            this.delegate = delegate;
+            this.job = job;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // 分页查询及写出不一定响应中断,停止服务时在这里结束导出
+            if (Thread.currentThread().isInterrupted()) {
+                Asserts.fail("导出已中断");
+            }
+            return delegate.hasNext();
+        }
+
+        @Override
+        public T next() {
+            T next = delegate.next();
+            job.setRows(job.getRows() + 1);
+            if (job.getRows() % PROGRESS_INTERVAL == 0) {
+                save(job);
+            }
+            return next;
+        }
+    }
+}
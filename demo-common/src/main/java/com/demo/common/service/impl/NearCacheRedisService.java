@@ -0,0 +1,414 @@
+package com.demo.common.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带本地缓存的redis操作实现类
+ * 只缓存配置了前缀的key,get/hGet优先读取进程内缓存,缓存按数量及过期时间淘汰,Hash按字段数计入数量;
+ * 通过本服务写入或删除时清除本地缓存,并通过pub/sub通知其他节点清除,从redis加载期间收到失效通知的值不写入缓存
+ * 命中统计注册为 cache.gets 等指标,cache 标签为 near-cache.values / near-cache.hashes
+ * 注意 : 缓存的是反序列化后的对象,调用方不要修改返回值
+ */
+@Slf4j
+public class NearCacheRedisService extends RedisServiceImpl implements MessageListener {
+
+    /**
+     * 本地缓存失效通知的消息通道
+     */
+    public static final String INVALIDATE_CHANNEL = "NEAR_CACHE:INVALIDATE";
+    /**
+     * redis中不存在的值也做缓存,避免热点空值反复穿透
+     */
+    private static final Object NULL_VALUE = new Object();
+    /**
+     * 失效版本的分段数
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    /**
+     * 需要本地缓存的key前缀
+     */
+    @Value("${redis.near-cache.key-prefixes:}")
+    private List<String> keyPrefixes;
+    /**
+     * 最多缓存的key数量,Hash按字段计数
+     */
+    @Value("${redis.near-cache.maximum-size:10000}")
+    private long maximumSize;
+    /**
+     * 本地缓存过期时间,单位秒,也是收不到失效通知时的最长不一致时间
+     */
+    @Value("${redis.near-cache.expire-seconds:60}")
+    private long expireSeconds;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 失效版本,按key散列分段;加载前记录版本,写入缓存时版本已变化说明加载期间有失效,丢弃加载的值
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final LongAdder hashHits = new LongAdder();
+    private final LongAdder hashMisses = new LongAdder();
+
+    private Cache<String, Object> values;
+    /**
+     * Hash按key缓存已读取的字段,权重为字段数,过期时间从第一个字段缓存时开始计算
+     */
+    private Cache<String, ConcurrentMap<String, Object>> hashes;
+
+    @Override
+    @PostConstruct
+    public void init() {
+        super.init();
+        values = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        hashes = Caffeine.newBuilder()
+                .maximumWeight(maximumSize)
+                .weigher((String key, ConcurrentMap<String, Object> fields) -> Math.max(1, fields.size()))
+                .expireAfter(new ExpireAfterCreate(TimeUnit.SECONDS.toNanos(expireSeconds)))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, values, "near-cache.values");
+        // Hash按字段统计,与 CaffeineCacheMetrics 使用相同的指标名
+        FunctionCounter.builder("cache.gets", hashHits, LongAdder::sum)
+                .tags("cache", "near-cache.hashes", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", hashMisses, LongAdder::sum)
+                .tags("cache", "near-cache.hashes", "result", "miss").register(meterRegistry);
+        Gauge.builder("cache.size", hashes, cache -> cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .tags("cache", "near-cache.hashes").register(meterRegistry);
+        redisInternalListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    @Override
+    @PreDestroy
+    public void destroy() {
+        redisInternalListenerContainer.removeMessageListener(this);
+        super.destroy();
+    }
+
+    @Override
+    public Object get(String key) {
+        if (!cacheable(key)) {
+            return super.get(key);
+        }
+        Object value = values.getIfPresent(key);
+        if (value != null) {
+            return unwrap(value);
+        }
+        // 不在缓存的计算函数中访问redis,避免网络调用期间占用缓存内部的锁
+        long version = version(key);
+        Object loaded = wrap(super.get(key));
+        values.asMap().compute(key, (k, cached) -> version(k) == version ? loaded : cached);
+        return unwrap(loaded);
+    }
+
+    @Override
+    public Object hGet(String key, String hashKey) {
+        if (!cacheable(key)) {
+            return super.hGet(key, hashKey);
+        }
+        ConcurrentMap<String, Object> fields = hashes.getIfPresent(key);
+        Object value = fields == null ? null : fields.get(hashKey);
+        if (value != null) {
+            hashHits.increment();
+            return unwrap(value);
+        }
+        hashMisses.increment();
+        long version = version(key);
+        Object loaded = wrap(super.hGet(key, hashKey));
+        // 在计算函数中加入字段,缓存随之重新计算权重
+        hashes.asMap().compute(key, (k, cached) -> {
+            if (version(k) != version) {
+                return cached;
+            }
+            ConcurrentMap<String, Object> updated = cached == null ? new ConcurrentHashMap<>(16) : cached;
+            updated.put(hashKey, loaded);
+            return updated;
+        });
+        return unwrap(loaded);
+    }
+
+    @Override
+    public void set(String key, Object value, long time) {
+        super.set(key, value, time);
+        invalidate(key);
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        super.set(key, value);
+        invalidate(key);
+    }
+
+    @Override
+    public Boolean del(String key) {
+        Boolean result = super.del(key);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long del(List<String> keys) {
+        Long result = super.del(keys);
+        invalidate(keys);
+        return result;
+    }
+
+    @Override
+    public Long incr(String key, long delta) {
+        Long result = super.incr(key, delta);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long incr(String key, long delta, long time) {
+        Long result = super.incr(key, delta, time);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long decr(String key, long delta) {
+        Long result = super.decr(key, delta);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Boolean hSet(String key, String hashKey, Object value, long time) {
+        Boolean result = super.hSet(key, hashKey, value, time);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public void hSet(String key, String hashKey, Object value) {
+        super.hSet(key, hashKey, value);
+        invalidate(key);
+    }
+
+    @Override
+    public Boolean hSetAll(String key, Map<String, Object> map, long time) {
+        Boolean result = super.hSetAll(key, map, time);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public void hSetAll(String key, Map<String, ?> map) {
+        super.hSetAll(key, map);
+        invalidate(key);
+    }
+
+    @Override
+    public void hDel(String key, Object... hashKey) {
+        super.hDel(key, hashKey);
+        invalidate(key);
+    }
+
+    @Override
+    public Long hIncr(String key, String hashKey, Long delta) {
+        Long result = super.hIncr(key, hashKey, delta);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long hDecr(String key, String hashKey, Long delta) {
+        Long result = super.hDecr(key, hashKey, delta);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public void mSet(Map<String, ?> map) {
+        super.mSet(map);
+        invalidate(map.keySet());
+    }
+
+    @Override
+    public void mSet(Map<String, ?> map, long time) {
+        super.mSet(map, time);
+        invalidate(map.keySet());
+    }
+
+    @Override
+    public void mSet(Map<String, ?> map, Map<String, Long> times) {
+        super.mSet(map, times);
+        invalidate(map.keySet());
+    }
+
+    @Override
+    public void hSetAll(Map<String, ? extends Map<String, ?>> maps, long time) {
+        super.hSetAll(maps, time);
+        invalidate(maps.keySet());
+    }
+
+    @Override
+    protected long unlink(List<String> keys) {
+        long result = super.unlink(keys);
+        invalidate(keys);
+        return result;
+    }
+
+    @Override
+    public boolean existingKey(String key, String value, Long timeout) {
+        boolean result = super.existingKey(key, value, timeout);
+        invalidate(key);
+        return result;
+    }
+
+    /**
+     * 收到其他节点的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            InvalidateMessage msg = objectMapper.readValue(String.valueOf(body), InvalidateMessage.class);
+            // 忽略自己发出的失效通知
+            if (!nodeId.equals(msg.getNodeId())) {
+                invalidateLocal(msg.getKeys());
+            }
+        } catch (Exception e) {
+            log.error("本地缓存失效通知处理失败:", e);
+        }
+    }
+
+    private void invalidate(String key) {
+        invalidate(Collections.singletonList(key));
+    }
+
+    /**
+     * 清除本地缓存并通知其他节点
+     *
+     * @param keys 字段key集合
+     */
+    private void invalidate(Collection<String> keys) {
+        List<String> cachedKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (cacheable(key)) {
+                cachedKeys.add(key);
+            }
+        }
+        if (cachedKeys.isEmpty()) {
+            return;
+        }
+        invalidateLocal(cachedKeys);
+        InvalidateMessage msg = new InvalidateMessage();
+        msg.setNodeId(nodeId);
+        msg.setKeys(cachedKeys);
+        publish(INVALIDATE_CHANNEL, msg);
+    }
+
+    /**
+     * 先增加版本再清除,清除前完成的加载已写入的值会被清除,之后完成的加载不会再写入
+     */
+    private void invalidateLocal(Collection<String> keys) {
+        for (String key : keys) {
+            versions.incrementAndGet(stripe(key));
+        }
+        values.invalidateAll(keys);
+        hashes.invalidateAll(keys);
+    }
+
+    private long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private boolean cacheable(String key) {
+        for (String prefix : keyPrefixes) {
+            if (!prefix.isEmpty() && key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object wrap(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private static Object unwrap(Object value) {
+        return value == NULL_VALUE ? null : value;
+    }
+
+    /**
+     * 过期时间只从创建时计算,加入字段不延长已缓存字段的过期时间
+     */
+    private static class ExpireAfterCreate implements Expiry<String, ConcurrentMap<String, Object>> {
+        private final long expireNanos;
+
+        ExpireAfterCreate(long expireNanos) {
+            this.expireNanos = expireNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, ConcurrentMap<String, Object> fields, long currentTime) {
+            return expireNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ConcurrentMap<String, Object> fields, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, ConcurrentMap<String, Object> fields, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * 本地缓存失效通知
+     */
+    @Data
+    public static class InvalidateMessage {
+        /**
+         * 发出通知的节点
+         */
+        private String nodeId;
+        /**
+         * 需要失效的key
+         */
+        private List<String> keys;
+    }
+}
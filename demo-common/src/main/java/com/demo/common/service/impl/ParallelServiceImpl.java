@@ -0,0 +1,195 @@
+package com.demo.common.service.impl;
+
+import com.demo.common.domain.ParallelResult;
+import com.demo.common.exception.ApiException;
+import com.demo.common.executor.TaskDeadline;
+import com.demo.common.service.ParallelService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 并行执行服务,调用线程通过 CompletionService 按完成顺序收集结果,
+ * 一个任务完成后再提交下一个以限制并发数,结束时取消仍在执行的任务
+ */
+public class ParallelServiceImpl implements ParallelService {
+
+    private final ExecutorService executorService;
+
+    public ParallelServiceImpl(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    @Override
+    public <T> List<T> allOf(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit) {
+        ParallelResult<T> result = new Execution<>(tasks, tasks.size(), Mode.FAIL_FAST).run(timeout, unit);
+        checkComplete(result);
+        return result.getValues();
+    }
+
+    @Override
+    public <T> ParallelResult<T> allSettled(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit) {
+        return new Execution<>(tasks, tasks.size(), Mode.ALL_SETTLED).run(timeout, unit);
+    }
+
+    @Override
+    public <T> T anyOf(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit) {
+        if (tasks.isEmpty()) {
+            throw new ApiException("没有可执行的任务");
+        }
+        Execution<T> execution = new Execution<>(tasks, tasks.size(), Mode.FIRST_SUCCESS);
+        ParallelResult<T> result = execution.run(timeout, unit);
+        if (execution.winner >= 0) {
+            return result.getValues().get(execution.winner);
+        }
+        if (result.getUnfinished() > 0) {
+            throw new ApiException("并行任务执行超时");
+        }
+        throw failure("并行任务全部失败", result.getFailures().values().iterator().next());
+    }
+
+    @Override
+    public <T, R> List<R> parallelMap(Collection<T> items, Function<? super T, ? extends R> mapper, int maxConcurrency,
+                                      long timeout, TimeUnit unit) {
+        ParallelResult<R> result = new Execution<R>(toTasks(items, mapper), maxConcurrency, Mode.FAIL_FAST).run(timeout, unit);
+        checkComplete(result);
+        return result.getValues();
+    }
+
+    @Override
+    public <T, R> ParallelResult<R> parallelMapSettled(Collection<T> items, Function<? super T, ? extends R> mapper,
+                                                       int maxConcurrency, long timeout, TimeUnit unit) {
+        return new Execution<R>(toTasks(items, mapper), maxConcurrency, Mode.ALL_SETTLED).run(timeout, unit);
+    }
+
+    private static <T, R> List<Callable<R>> toTasks(Collection<T> items, Function<? super T, ? extends R> mapper) {
+        return items.stream().map(item -> (Callable<R>) () -> mapper.apply(item)).collect(Collectors.toList());
+    }
+
+    private static void checkComplete(ParallelResult<?> result) {
+        if (!result.getFailures().isEmpty()) {
+            throw failure("并行任务执行失败", result.getFailures().values().iterator().next());
+        }
+        if (result.getUnfinished() > 0) {
+            throw new ApiException("并行任务执行超时");
+        }
+    }
+
+    private static ApiException failure(String message, Throwable cause) {
+        if (cause instanceof ApiException) {
+            return (ApiException) cause;
+        }
+        return new ApiException(message, cause);
+    }
+
+    private enum Mode {
+        /**
+         * 等待全部任务
+         */
+        ALL_SETTLED,
+        /**
+         * 任一任务失败即结束
+         */
+        FAIL_FAST,
+        /**
+         * 任一任务成功即结束
+         */
+        FIRST_SUCCESS
+    }
+
+    /**
+     * 一次并行执行
+     */
+    private class Execution<T> {
+        private final List<? extends Callable<T>> tasks;
+        private final int maxConcurrency;
+        private final Mode mode;
+        private final List<T> values;
+        private final Map<Integer, Throwable> failures = new TreeMap<>();
+        private final Map<Future<T>, Integer> running = new HashMap<>();
+        private int finished;
+        private int winner = -1;
+
+        Execution(List<? extends Callable<T>> tasks, int maxConcurrency, Mode mode) {
+            if (maxConcurrency <= 0 && !tasks.isEmpty()) {
+                throw new IllegalArgumentException("并发数必须大于0:" + maxConcurrency);
+            }
+            this.tasks = tasks;
+            this.maxConcurrency = maxConcurrency;
+            this.mode = mode;
+            this.values = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+        }
+
+        ParallelResult<T> run(long timeout, TimeUnit unit) {
+            long timeoutNanos = Math.min(unit.toNanos(timeout), TaskDeadline.remaining(TimeUnit.NANOSECONDS));
+            long deadline = System.nanoTime() + timeoutNanos;
+            CompletionService<T> completionService = new ExecutorCompletionService<>(executorService);
+            int next = 0;
+            try {
+                while (next < tasks.size() && running.size() < maxConcurrency) {
+                    running.put(completionService.submit(tasks.get(next)), next++);
+                }
+                while (!running.isEmpty()) {
+                    Future<T> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        break;
+                    }
+                    if (!collect(future)) {
+                        break;
+                    }
+                    if (next < tasks.size()) {
+                        running.put(completionService.submit(tasks.get(next)), next++);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException("等待并行任务时被中断", e);
+            } finally {
+                running.keySet().forEach(future -> future.cancel(true));
+            }
+            ParallelResult<T> result = new ParallelResult<>();
+            result.setValues(values);
+            result.setFailures(failures);
+            result.setUnfinished(tasks.size() - finished);
+            return result;
+        }
+
+        /**
+         * 记录已完成任务的结果
+         *
+         * @return 是否继续等待其他任务
+         */
+        private boolean collect(Future<T> future) throws InterruptedException {
+            int index = running.remove(future);
+            finished++;
+            try {
+                values.set(index, future.get());
+                if (mode == Mode.FIRST_SUCCESS) {
+                    winner = index;
+                    return false;
+                }
+                return true;
+            } catch (ExecutionException e) {
+                failures.put(index, e.getCause());
+            } catch (CancellationException e) {
+                failures.put(index, e);
+            }
+            return mode != Mode.FAIL_FAST;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.demo.common.service.impl;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.demo.common.annotation.RedisKeyExpiredListener;
+import com.demo.common.annotation.RedisMessageListener;
+import com.demo.common.service.RedisPubSubService;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * redis pub/sub 订阅实现类
+ * 消息由监听容器的分发线程池反序列化并处理,不占用redis连接线程;
+ * 批量订阅的消息在分发线程中攒批,攒够后直接处理,未攒够的由定时线程按时间窗口处理
+ */
+@Slf4j
+public class RedisPubSubServiceImpl implements RedisPubSubService, SmartInitializingSingleton, ApplicationContextAware {
+
+    /**
+     * key过期事件的消息通道
+     */
+    private static final String KEY_EXPIRED_CHANNEL = "__keyevent@%d__:expired";
+    private static final String KEYSPACE_EVENTS_CONFIG = "notify-keyspace-events";
+
+    /**
+     * 是否开启key过期监听
+     */
+    @Value("${spring.redis.keyEventExpired:false}")
+    private boolean keyEventExpired;
+    @Value("${spring.redis.database:0}")
+    private int database;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+    @Resource
+    private ObjectMapper objectMapper;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ExpiredHandler> expiredHandlers = new CopyOnWriteArrayList<>();
+    private final MessageListener keyExpiredListener = this::onKeyExpired;
+    private final AtomicBoolean keyExpiredSubscribed = new AtomicBoolean();
+    private ApplicationContext applicationContext;
+    private ScheduledExecutorService batchScheduler;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @PostConstruct
+    public void init() {
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("redis-pubsub-batch-").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (MessageListener listener : listeners) {
+            redisMessageListenerContainer.removeMessageListener(listener);
+        }
+        redisMessageListenerContainer.removeMessageListener(keyExpiredListener);
+        batchScheduler.shutdownNow();
+    }
+
+    /**
+     * 所有单例创建完成后注册加了注解的方法
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String beanName : applicationContext.getBeanNamesForType(Object.class, false, false)) {
+            Class<?> type = applicationContext.getType(beanName);
+            if (type == null) {
+                continue;
+            }
+            register(type, RedisMessageListener.class, (method, listener) -> {
+                JavaType paramType = objectMapper.constructType(method.getGenericParameterTypes()[0]);
+                Consumer<Object> invoker = invoker(beanName, method);
+                Topic topic = listener.pattern() ? new PatternTopic(listener.channel()) : new ChannelTopic(listener.channel());
+                if (listener.batchSize() <= 1) {
+                    subscribe(topic, paramType, invoker);
+                    return;
+                }
+                if (!paramType.isCollectionLikeType()) {
+                    throw new IllegalStateException("RedisMessageListener批量接收时参数必须为List:" + method);
+                }
+                subscribeBatch(topic, paramType.getContentType(), listener.batchSize(), listener.batchWindowMillis(), invoker::accept);
+            });
+            register(type, RedisKeyExpiredListener.class, (method, listener) -> {
+                if (method.getParameterTypes()[0] != String.class) {
+                    throw new IllegalStateException("RedisKeyExpiredListener方法参数必须为String:" + method);
+                }
+                Consumer<Object> invoker = invoker(beanName, method);
+                onKeyExpired(listener.keyPrefix(), invoker::accept);
+            });
+        }
+    }
+
+    @Override
+    public <T> void subscribe(String channel, Class<T> type, Consumer<T> handler) {
+        subscribe(new ChannelTopic(channel), objectMapper.constructType(type), msg -> handler.accept(type.cast(msg)));
+    }
+
+    @Override
+    public <T> void pSubscribe(String pattern, Class<T> type, Consumer<T> handler) {
+        subscribe(new PatternTopic(pattern), objectMapper.constructType(type), msg -> handler.accept(type.cast(msg)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void subscribeBatch(String channel, Class<T> type, int batchSize, long batchWindowMillis, Consumer<List<T>> handler) {
+        subscribeBatch(new ChannelTopic(channel), objectMapper.constructType(type), batchSize, batchWindowMillis,
+                msgs -> handler.accept((List<T>) msgs));
+    }
+
+    @Override
+    public void onKeyExpired(String keyPrefix, Consumer<String> handler) {
+        if (!keyEventExpired) {
+            log.warn("未开启 spring.redis.keyEventExpired,忽略key过期监听;{}", keyPrefix);
+            return;
+        }
+        expiredHandlers.add(new ExpiredHandler(keyPrefix, handler));
+        if (keyExpiredSubscribed.compareAndSet(false, true)) {
+            enableKeyExpiredEvents();
+            redisMessageListenerContainer.addMessageListener(keyExpiredListener,
+                    new ChannelTopic(String.format(KEY_EXPIRED_CHANNEL, database)));
+        }
+        log.info("redis key过期监听已注册;{}", keyPrefix);
+    }
+
+    private void subscribe(Topic topic, JavaType type, Consumer<Object> handler) {
+        MessageListener listener = (message, pattern) -> {
+            try {
+                handler.accept(read(message, type));
+            } catch (Exception e) {
+                log.error("redis消息处理失败;{}", topic.getTopic(), e);
+            }
+        };
+        addListener(listener, topic);
+    }
+
+    private void subscribeBatch(Topic topic, JavaType type, int batchSize, long batchWindowMillis, Consumer<List<Object>> handler) {
+        BatchListener listener = new BatchListener(topic, type, batchSize, handler);
+        batchScheduler.scheduleWithFixedDelay(listener::flush, batchWindowMillis, batchWindowMillis, TimeUnit.MILLISECONDS);
+        addListener(listener, topic);
+    }
+
+    private void addListener(MessageListener listener, Topic topic) {
+        listeners.add(listener);
+        redisMessageListenerContainer.addMessageListener(listener, topic);
+        log.info("redis消息订阅已注册;{}", topic.getTopic());
+    }
+
+    /**
+     * 消息由 RedisService.publish 先转为json字符串再按模板的序列化器写入,按同样的方式读取
+     */
+    private Object read(Message message, JavaType type) throws Exception {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (body instanceof String) {
+            return objectMapper.readValue((String) body, type);
+        }
+        return objectMapper.convertValue(body, type);
+    }
+
+    private void onKeyExpired(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (ExpiredHandler expiredHandler : expiredHandlers) {
+            if (key.startsWith(expiredHandler.keyPrefix)) {
+                try {
+                    expiredHandler.handler.accept(key);
+                } catch (Exception e) {
+                    log.error("redis key过期处理失败;{}", key, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * redis默认不发送key过期事件,未开启时尝试修改配置,没有CONFIG权限时需要在redis配置中开启
+     */
+    private void enableKeyExpiredEvents() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                Properties config = connection.getConfig(KEYSPACE_EVENTS_CONFIG);
+                String events = config == null ? "" : config.getProperty(KEYSPACE_EVENTS_CONFIG, "");
+                String required = (events.contains("E") ? "" : "E") + (events.contains("x") || events.contains("A") ? "" : "x");
+                if (!required.isEmpty()) {
+                    connection.setConfig(KEYSPACE_EVENTS_CONFIG, events + required);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("开启redis key过期事件失败,请在redis配置 notify-keyspace-events Ex", e);
+        }
+    }
+
+    private <A extends Annotation> void register(Class<?> type, Class<A> annotationType, BiConsumer<Method, A> registrar) {
+        if (!AnnotationUtils.isCandidateClass(type, annotationType)) {
+            return;
+        }
+        Map<Method, A> methods = MethodIntrospector.selectMethods(ClassUtils.getUserClass(type),
+                (MethodIntrospector.MetadataLookup<A>) method -> AnnotatedElementUtils.findMergedAnnotation(method, annotationType));
+        methods.forEach((method, annotation) -> {
+            if (method.getParameterCount() != 1) {
+                throw new IllegalStateException(annotationType.getSimpleName() + "方法只能有一个参数:" + method);
+            }
+            registrar.accept(method, annotation);
+        });
+    }
+
+    private Consumer<Object> invoker(String beanName, Method method) {
+        Object bean = applicationContext.getBean(beanName);
+        Method invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+        ReflectionUtils.makeAccessible(invocable);
+        return msg -> ReflectionUtils.invokeMethod(invocable, bean, msg);
+    }
+
+    /**
+     * 批量订阅的监听器
+     */
+    private class BatchListener implements MessageListener {
+        private final Topic topic;
+        private final JavaType type;
+        private final int batchSize;
+        private final Consumer<List<Object>> handler;
+        private List<Object> buffer;
+
+        BatchListener(Topic topic, JavaType type, int batchSize, Consumer<List<Object>> handler) {
+            this.topic = topic;
+            this.type = type;
+            this.batchSize = batchSize;
+            this.handler = handler;
+            this.buffer = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            Object msg;
+            try {
+                msg = read(message, type);
+            } catch (Exception e) {
+                log.error("redis消息反序列化失败;{}", topic.getTopic(), e);
+                return;
+            }
+            List<Object> batch = null;
+            synchronized (this) {
+                buffer.add(msg);
+                if (buffer.size() >= batchSize) {
+                    batch = buffer;
+                    buffer = new ArrayList<>(batchSize);
+                }
+            }
+            if (batch != null) {
+                handle(batch);
+            }
+        }
+
+        /**
+         * 时间窗口到期,处理未攒够的消息
+         */
+        void flush() {
+            List<Object> batch;
+            synchronized (this) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                batch = buffer;
+                buffer = new ArrayList<>(batchSize);
+            }
+            handle(batch);
+        }
+
+        private void handle(List<Object> batch) {
+            try {
+                handler.accept(batch);
+            } catch (Exception e) {
+                log.error("redis消息批量处理失败;{} {}条", topic.getTopic(), batch.size(), e);
+            }
+        }
+    }
+
+    /**
+     * key过期处理
+     */
+    private static class ExpiredHandler {
+        private final String keyPrefix;
+        private final Consumer<String> handler;
+
+        ExpiredHandler(String keyPrefix, Consumer<String> handler) {
+            this.keyPrefix = keyPrefix;
+            this.handler = handler;
+        }
+    }
+}
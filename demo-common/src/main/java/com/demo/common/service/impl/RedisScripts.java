@@ -0,0 +1,155 @@
+package com.demo.common.service.impl;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * redis lua脚本,脚本在服务端原子执行,由RedisTemplate通过EVALSHA调用,未缓存时自动回退EVAL
+ * 参数统一按字节传入,值需要调用方按模板的序列化器序列化
+ */
+final class RedisScripts {
+
+    /**
+     * 单次调用unpack的参数个数,避免超出lua栈限制
+     */
+    private static final String UNPACK_SIZE = "1000";
+
+    /**
+     * 递增,key不存在时设置初始值及过期时间,已存在时不改变过期时间
+     * KEYS[1] key ; ARGV[1] 递增值 ; ARGV[2] 过期时间(秒)
+     */
+    static final RedisScript<Long> INCR_EXPIRE = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then "
+                    + "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) "
+                    + "return tonumber(ARGV[1]) "
+                    + "end "
+                    + "return redis.call('INCRBY', KEYS[1], ARGV[1])", Long.class);
+
+    /**
+     * 写入Hash属性并设置过期时间,返回过期时间是否设置成功
+     * KEYS[1] key ; ARGV[1] 过期时间(秒) ; ARGV[2..] hashKey,value 交替
+     */
+    static final RedisScript<Boolean> HSET_EXPIRE = RedisScript.of(
+            "for i = 2, #ARGV, " + UNPACK_SIZE + " do "
+                    + "redis.call('HSET', KEYS[1], unpack(ARGV, i, math.min(i + " + UNPACK_SIZE + " - 1, #ARGV))) "
+                    + "end "
+                    + "return redis.call('EXPIRE', KEYS[1], ARGV[1])", Boolean.class);
+
+    /**
+     * 向Set添加属性并设置过期时间,返回新增个数
+     * KEYS[1] key ; ARGV[1] 过期时间(秒) ; ARGV[2..] 属性值
+     */
+    static final RedisScript<Long> SADD_EXPIRE = RedisScript.of(
+            "local n = 0 "
+                    + "for i = 2, #ARGV, " + UNPACK_SIZE + " do "
+                    + "n = n + redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + " + UNPACK_SIZE + " - 1, #ARGV))) "
+                    + "end "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[1]) "
+                    + "return n", Long.class);
+
+    /**
+     * 向List尾部添加属性并设置过期时间,返回添加后的长度
+     * KEYS[1] key ; ARGV[1] 过期时间(秒) ; ARGV[2..] 属性值
+     */
+    static final RedisScript<Long> RPUSH_EXPIRE = RedisScript.of(
+            "local n = 0 "
+                    + "for i = 2, #ARGV, " + UNPACK_SIZE + " do "
+                    + "n = redis.call('RPUSH', KEYS[1], unpack(ARGV, i, math.min(i + " + UNPACK_SIZE + " - 1, #ARGV))) "
+                    + "end "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[1]) "
+                    + "return n", Long.class);
+
+    /**
+     * 获取可重入锁,锁为Hash结构,字段为持有者标识,值为重入次数
+     * KEYS[1] 锁key ; ARGV[1] 持有时间(毫秒) ; ARGV[2] 持有者标识
+     * 获取成功返回nil,否则返回锁的剩余时间(毫秒)
+     */
+    static final RedisScript<Long> LOCK = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 0 or redis.call('HEXISTS', KEYS[1], ARGV[2]) == 1 then "
+                    + "redis.call('HINCRBY', KEYS[1], ARGV[2], 1) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[1]) "
+                    + "return nil "
+                    + "end "
+                    + "return redis.call('PTTL', KEYS[1])", Long.class);
+
+    /**
+     * 释放可重入锁,重入次数归零时删除并发布释放通知
+     * KEYS[1] 锁key ; KEYS[2] 通知通道 ; ARGV[1] 持有者标识 ; ARGV[2] 通知内容
+     * 返回 -1 未持有锁 ; 0 重入次数减一 ; 1 已释放
+     */
+    static final RedisScript<Long> UNLOCK = RedisScript.of(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then "
+                    + "return -1 "
+                    + "end "
+                    + "if redis.call('HINCRBY', KEYS[1], ARGV[1], -1) > 0 then "
+                    + "return 0 "
+                    + "end "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('PUBLISH', KEYS[2], ARGV[2]) "
+                    + "return 1", Long.class);
+
+    /**
+     * 锁续期,仍由该持有者持有时重置过期时间
+     * KEYS[1] 锁key ; ARGV[1] 持有时间(毫秒) ; ARGV[2] 持有者标识
+     */
+    static final RedisScript<Boolean> RENEW_LOCK = RedisScript.of(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[2]) == 1 then "
+                    + "return redis.call('PEXPIRE', KEYS[1], ARGV[1]) "
+                    + "end "
+                    + "return 0", Boolean.class);
+
+    /**
+     * 裁剪stream,返回删除的消息数,stream不存在时返回-1
+     * KEYS[1] stream key ; ARGV 裁剪条件,如 MAXLEN ~ 1000
+     */
+    static final RedisScript<Long> XTRIM = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end "
+                    + "return redis.call('XTRIM', KEYS[1], unpack(ARGV))", Long.class);
+
+    /**
+     * 滑动窗口限流,ZSet记录窗口内每次请求的时间,使用服务器时间
+     * 脚本中读取TIME后写入,需要按命令复制(redis 5 起默认)
+     * KEYS[1] 限流key ; ARGV[1] 窗口长度(毫秒) ; ARGV[2] 窗口内最多次数 ; ARGV[3] 本次请求的唯一标识
+     * 返回 1 允许 ; 0 拒绝
+     */
+    static final RedisScript<Boolean> SLIDING_WINDOW = RedisScript.of(
+            "redis.replicate_commands() "
+                    + "local t = redis.call('TIME') "
+                    + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) "
+                    + "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - tonumber(ARGV[1])) "
+                    + "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[2]) then "
+                    + "return 0 "
+                    + "end "
+                    + "redis.call('ZADD', KEYS[1], now, ARGV[3]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[1]) "
+                    + "return 1", Boolean.class);
+
+    /**
+     * 布隆过滤器添加,每个属性占用连续的 ARGV[1] 个参数,返回新属性个数(至少一位原来为0)
+     * KEYS[1] 位图key ; ARGV[1] 哈希函数个数 ; ARGV[2..] 各属性对应的位
+     */
+    static final RedisScript<Long> BLOOM_ADD = RedisScript.of(
+            "local k = tonumber(ARGV[1]) "
+                    + "local added = 0 "
+                    + "for i = 2, #ARGV, k do "
+                    + "local new = 0 "
+                    + "for j = i, i + k - 1 do "
+                    + "if redis.call('SETBIT', KEYS[1], ARGV[j], 1) == 0 then new = 1 end "
+                    + "end "
+                    + "added = added + new "
+                    + "end "
+                    + "return added", Long.class);
+
+    /**
+     * 布隆过滤器判断,任意一位为0时不存在
+     * KEYS[1] 位图key ; ARGV 属性对应的位
+     */
+    static final RedisScript<Boolean> BLOOM_EXISTS = RedisScript.of(
+            "for i = 1, #ARGV do "
+                    + "if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then return 0 end "
+                    + "end "
+                    + "return 1", Boolean.class);
+
+    private RedisScripts() {
+    }
+}
@@ -1,21 +1,46 @@
 package com.demo.common.service.impl;
 
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.demo.common.service.RedisBloomFilter;
 import com.demo.common.service.RedisService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.connection.RedisStreamCommands;
-import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
 import org.springframework.data.redis.connection.stream.RecordId;
-import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.ConvertingCursor;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
  * redis操作实现类
@@ -31,14 +56,77 @@ public class RedisServiceImpl implements RedisService {
      */
     public static final String STREAM_KEY_PREFIX = "STREAM:";
     /**
-     * stream 流一个 streamKey上最多允许发送的消息量最大为10万
+     * stream 消息中存放消息内容的字段
      */
-    public static final Long SEND_MAX_LEN = 10 * 10000L;
+    public static final String STREAM_PAYLOAD_FIELD = "payload";
+    /**
+     * 批量操作时每个pipeline最多提交的命令数
+     */
+    public static final int PIPELINE_BATCH_SIZE = 1000;
+    /**
+     * 单条UNLINK命令的key数量
+     */
+    private static final int UNLINK_BATCH_SIZE = 100;
+    /**
+     * redis位图最大位数 512MB
+     */
+    private static final long BLOOM_MAX_BITS = 1L << 32;
+    /**
+     * 分布式锁释放通知的消息通道,消息内容为锁key
+     */
+    public static final String LOCK_CHANNEL = "LOCK:RELEASE";
 
+    /**
+     * 看门狗续期的锁持有时间,单位毫秒,每隔三分之一时间续期一次
+     */
+    @Value("${redis.lock.watchdog-timeout:30000}")
+    private long lockWatchdogTimeout;
+
+    @Resource
+    protected RedisTemplate<String, Object> redisTemplate;
+    @Resource
+    protected ObjectMapper objectMapper;
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    protected RedisMessageListenerContainer redisInternalListenerContainer;
     @Resource
-    private ObjectMapper objectMapper;
+    private RedisStreamRetention redisStreamRetention;
+
+    /**
+     * 当前节点标识
+     */
+    protected final String nodeId = UUID.randomUUID().toString();
+    /**
+     * 滑动窗口限流记录的序号
+     */
+    private final AtomicLong rateLimitSequence = new AtomicLong();
+    /**
+     * 本节点等待中的锁,收到释放通知时按等待顺序唤醒一个
+     */
+    private final ConcurrentMap<String, LockWaiter> lockWaiters = new ConcurrentHashMap<>();
+    /**
+     * 看门狗续期任务,key为锁key加持有者,同一节点上不同线程先后持有同一把锁时互不影响
+     */
+    private final ConcurrentMap<String, LockRenewal> lockRenewals = new ConcurrentHashMap<>();
+    private final MessageListener lockReleaseListener = (message, pattern) -> {
+        LockWaiter waiter = lockWaiters.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (waiter != null) {
+            waiter.semaphore.release();
+        }
+    };
+    private ScheduledExecutorService lockWatchdog;
+
+    @PostConstruct
+    public void init() {
+        lockWatchdog = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("redis-lock-watchdog-").setDaemon(true).build());
+        redisInternalListenerContainer.addMessageListener(lockReleaseListener, new ChannelTopic(LOCK_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        redisInternalListenerContainer.removeMessageListener(lockReleaseListener);
+        lockWatchdog.shutdownNow();
+    }
 
     @Override
     public void set(String key, Object value, long time) {
@@ -92,13 +180,7 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Long incr(String key, long delta, long time) {
-        Boolean aBoolean = redisTemplate.hasKey(key);
-        if (aBoolean == null || !aBoolean) {
-            redisTemplate.opsForValue().set(key, delta, time, TimeUnit.SECONDS);
-            return delta;
-        } else {
-            return incr(key, delta);
-        }
+        return execute(RedisScripts.INCR_EXPIRE, key, rawNumber(delta), rawNumber(time));
     }
 
     @Override
@@ -113,8 +195,7 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Boolean hSet(String key, String hashKey, Object value, long time) {
-        redisTemplate.opsForHash().put(key, hashKey, value);
-        return expire(key, time);
+        return execute(RedisScripts.HSET_EXPIRE, key, rawNumber(time), rawHashKey(hashKey), rawHashValue(value));
     }
 
     @Override
@@ -129,8 +210,13 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Boolean hSetAll(String key, Map<String, Object> map, long time) {
-        redisTemplate.opsForHash().putAll(key, map);
-        return expire(key, time);
+        List<byte[]> args = new ArrayList<>(map.size() * 2 + 1);
+        args.add(rawNumber(time));
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            args.add(rawHashKey(entry.getKey()));
+            args.add(rawHashValue(entry.getValue()));
+        }
+        return execute(RedisScripts.HSET_EXPIRE, key, args.toArray());
     }
 
     @Override
@@ -170,9 +256,7 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Long sAdd(String key, long time, Object... values) {
-        Long count = redisTemplate.opsForSet().add(key, values);
-        expire(key, time);
-        return count;
+        return execute(RedisScripts.SADD_EXPIRE, key, scriptArgs(time, values));
     }
 
     @Override
@@ -212,9 +296,7 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Long lPush(String key, Object value, long time) {
-        Long index = redisTemplate.opsForList().rightPush(key, value);
-        expire(key, time);
-        return index;
+        return execute(RedisScripts.RPUSH_EXPIRE, key, rawNumber(time), rawValue(value));
     }
 
     @Override
@@ -224,9 +306,7 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Long lPushAll(String key, Long time, Object... values) {
-        Long count = redisTemplate.opsForList().rightPushAll(key, values);
-        expire(key, time);
-        return count;
+        return execute(RedisScripts.RPUSH_EXPIRE, key, scriptArgs(time, values));
     }
 
     @Override
@@ -234,6 +314,273 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.opsForList().remove(key, count, value);
     }
 
+    @Override
+    public Boolean zAdd(String key, Object value, double score) {
+        return redisTemplate.opsForZSet().add(key, value, score);
+    }
+
+    @Override
+    public Long zAdd(String key, Map<?, Double> scores) {
+        List<RedisZSetCommands.Tuple> tuples = new ArrayList<>(scores.size());
+        for (Map.Entry<?, Double> entry : scores.entrySet()) {
+            tuples.add(new DefaultTuple(rawValue(entry.getKey()), entry.getValue()));
+        }
+        byte[] rawKey = rawKey(key);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (List<RedisZSetCommands.Tuple> batch : partition(tuples)) {
+                connection.zSetCommands().zAdd(rawKey, new LinkedHashSet<>(batch));
+            }
+            return null;
+        });
+        long added = 0;
+        for (Object result : results) {
+            added += result instanceof Long ? (Long) result : 0;
+        }
+        return added;
+    }
+
+    @Override
+    public Double zIncrBy(String key, Object value, double delta) {
+        return redisTemplate.opsForZSet().incrementScore(key, value, delta);
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zRangeWithScores(String key, long start, long end) {
+        return redisTemplate.opsForZSet().rangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zRevRangeWithScores(String key, long start, long end) {
+        return redisTemplate.opsForZSet().reverseRangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zRangeByScoreWithScores(String key, double min, double max, long offset, long count) {
+        return redisTemplate.opsForZSet().rangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Long zRevRank(String key, Object value) {
+        return redisTemplate.opsForZSet().reverseRank(key, value);
+    }
+
+    @Override
+    public Double zScore(String key, Object value) {
+        return redisTemplate.opsForZSet().score(key, value);
+    }
+
+    @Override
+    public Long zRemRangeByScore(String key, double min, double max) {
+        return redisTemplate.opsForZSet().removeRangeByScore(key, min, max);
+    }
+
+    @Override
+    public Long zCard(String key) {
+        return redisTemplate.opsForZSet().zCard(key);
+    }
+
+    @Override
+    public boolean slidingWindowAcquire(String key, long limit, long window, TimeUnit unit) {
+        // 同一毫秒内的多次请求需要不同的成员,否则ZADD只会更新分数
+        String member = nodeId + ":" + rateLimitSequence.incrementAndGet();
+        Boolean acquired = execute(RedisScripts.SLIDING_WINDOW, key, rawNumber(unit.toMillis(window)), rawNumber(limit),
+                member.getBytes(StandardCharsets.UTF_8));
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    @Override
+    public Long pfAdd(String key, String... values) {
+        return redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.hyperLogLogCommands().pfAdd(rawKey(key), rawStrings(values)));
+    }
+
+    @Override
+    public Long pfCount(String... keys) {
+        byte[][] rawKeys = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            rawKeys[i] = rawKey(keys[i]);
+        }
+        return redisTemplate.execute((RedisCallback<Long>) connection -> connection.hyperLogLogCommands().pfCount(rawKeys));
+    }
+
+    @Override
+    public void pfMerge(String destKey, String... sourceKeys) {
+        byte[][] rawKeys = new byte[sourceKeys.length][];
+        for (int i = 0; i < sourceKeys.length; i++) {
+            rawKeys[i] = rawKey(sourceKeys[i]);
+        }
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.hyperLogLogCommands().pfMerge(rawKey(destKey), rawKeys);
+            return null;
+        });
+    }
+
+    @Override
+    public RedisBloomFilter bloomFilter(String key, long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("布隆过滤器参数错误:" + expectedInsertions + " " + fpp);
+        }
+        long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        if (bitSize > BLOOM_MAX_BITS) {
+            throw new IllegalArgumentException("布隆过滤器超出redis位图上限:" + bitSize);
+        }
+        int hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return new BloomFilter(key, bitSize, hashFunctions);
+    }
+
+    @Override
+    public void mSet(Map<String, ?> map) {
+        executePipelined(map.entrySet(), (connection, batch) -> {
+            Map<byte[], byte[]> tuple = new LinkedHashMap<>(batch.size() * 2);
+            for (Map.Entry<String, ?> entry : batch) {
+                tuple.put(rawKey(entry.getKey()), rawValue(entry.getValue()));
+            }
+            connection.stringCommands().mSet(tuple);
+        });
+    }
+
+    @Override
+    public void mSet(Map<String, ?> map, long time) {
+        executePipelined(map.entrySet(), (connection, batch) -> {
+            for (Map.Entry<String, ?> entry : batch) {
+                set(connection, entry.getKey(), entry.getValue(), time);
+            }
+        });
+    }
+
+    @Override
+    public void mSet(Map<String, ?> map, Map<String, Long> times) {
+        executePipelined(map.entrySet(), (connection, batch) -> {
+            for (Map.Entry<String, ?> entry : batch) {
+                Long time = times.get(entry.getKey());
+                set(connection, entry.getKey(), entry.getValue(), time == null ? 0 : time);
+            }
+        });
+    }
+
+    @Override
+    public List<Object> mGet(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 所有批次的MGET在同一个pipeline中提交,只有一次往返
+        List<Object> batches = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (List<String> batch : partition(keys)) {
+                byte[][] rawKeys = new byte[batch.size()][];
+                for (int i = 0; i < rawKeys.length; i++) {
+                    rawKeys[i] = rawKey(batch.get(i));
+                }
+                connection.stringCommands().mGet(rawKeys);
+            }
+            return null;
+        });
+        List<Object> values = new ArrayList<>(keys.size());
+        for (Object batch : batches) {
+            values.addAll((List<?>) batch);
+        }
+        return values;
+    }
+
+    @Override
+    public void hSetAll(Map<String, ? extends Map<String, ?>> maps, long time) {
+        executePipelined(maps.entrySet(), (connection, batch) -> {
+            for (Map.Entry<String, ? extends Map<String, ?>> entry : batch) {
+                byte[] rawKey = rawKey(entry.getKey());
+                Map<byte[], byte[]> hashes = new LinkedHashMap<>(entry.getValue().size() * 2);
+                for (Map.Entry<String, ?> hash : entry.getValue().entrySet()) {
+                    hashes.put(rawHashKey(hash.getKey()), rawHashValue(hash.getValue()));
+                }
+                connection.hashCommands().hMSet(rawKey, hashes);
+                expire(connection, rawKey, time);
+            }
+        });
+    }
+
+    @Override
+    public void sAddAll(Map<String, ? extends Collection<?>> values, long time) {
+        executePipelined(values.entrySet(), (connection, batch) -> {
+            for (Map.Entry<String, ? extends Collection<?>> entry : batch) {
+                byte[] rawKey = rawKey(entry.getKey());
+                connection.setCommands().sAdd(rawKey, rawValues(entry.getValue()));
+                expire(connection, rawKey, time);
+            }
+        });
+    }
+
+    @Override
+    public void lPushAll(Map<String, ? extends Collection<?>> values, long time) {
+        executePipelined(values.entrySet(), (connection, batch) -> {
+            for (Map.Entry<String, ? extends Collection<?>> entry : batch) {
+                byte[] rawKey = rawKey(entry.getKey());
+                connection.listCommands().rPush(rawKey, rawValues(entry.getValue()));
+                expire(connection, rawKey, time);
+            }
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Cursor<String> scan(String pattern, long count) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        return redisTemplate.executeWithStickyConnection(connection ->
+                new ConvertingCursor<>(connection.keyCommands().scan(options), keySerializer::deserialize));
+    }
+
+    @Override
+    public Cursor<Map.Entry<Object, Object>> hScan(String key, String pattern, long count) {
+        return redisTemplate.opsForHash().scan(key, scanOptions(pattern, count));
+    }
+
+    @Override
+    public Cursor<Object> sScan(String key, String pattern, long count) {
+        return redisTemplate.opsForSet().scan(key, scanOptions(pattern, count));
+    }
+
+    @Override
+    public long delByPattern(String pattern) {
+        long deleted = 0;
+        try (Cursor<String> cursor = scan(pattern, PIPELINE_BATCH_SIZE)) {
+            List<String> batch = new ArrayList<>(PIPELINE_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == PIPELINE_BATCH_SIZE) {
+                    deleted += unlink(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleted += unlink(batch);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 在一个pipeline中分多条UNLINK删除一批key,单条命令不会太大,其他客户端的命令可以穿插执行
+     *
+     * @param keys 需要删除的key
+     * @return 删除的key数量
+     */
+    protected long unlink(List<String> keys) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < keys.size(); i += UNLINK_BATCH_SIZE) {
+                List<String> chunk = keys.subList(i, Math.min(i + UNLINK_BATCH_SIZE, keys.size()));
+                byte[][] rawKeys = new byte[chunk.size()][];
+                for (int j = 0; j < rawKeys.length; j++) {
+                    rawKeys[j] = rawKey(chunk.get(j));
+                }
+                connection.keyCommands().unlink(rawKeys);
+            }
+            return null;
+        });
+        long deleted = 0;
+        for (Object result : results) {
+            deleted += result instanceof Long ? (Long) result : 0;
+        }
+        return deleted;
+    }
+
     /**
      * 使用redis SETNX判断任务是否已经执行
      *
@@ -243,9 +590,8 @@ public class RedisServiceImpl implements RedisService {
      * @return 是否存在key
      */
     @Override
-    public synchronized boolean existingKey(String key, String value, Long timeout) {
-        Boolean existing = redisTemplate.opsForValue().setIfAbsent(key, value);
-        redisTemplate.expire(key, timeout, TimeUnit.SECONDS);
+    public boolean existingKey(String key, String value, Long timeout) {
+        Boolean existing = redisTemplate.opsForValue().setIfAbsent(key, value, timeout, TimeUnit.SECONDS);
         return Objects.nonNull(existing)&&existing;
     }
 
@@ -263,15 +609,10 @@ public class RedisServiceImpl implements RedisService {
     public RecordId sendMsgForStream(String streamKey, Object msg) {
         try {
             //消息内容统一处理为json
-            String jsonMsg = objectMapper.writeValueAsString(msg);
-            Map<byte[], byte[]> payload = new HashMap<>(1);
-            payload.put("payload".getBytes(StandardCharsets.UTF_8), jsonMsg.getBytes(StandardCharsets.UTF_8));
-            ByteRecord byteRecord = StreamRecords.rawBytes(payload).withStreamKey((STREAM_KEY_PREFIX+streamKey).getBytes(StandardCharsets.UTF_8));
-            RedisCallback<RecordId> callback = connection -> {
-                //设置这个key上的最大消息数，避免消息太多导致 redis 服务器的内存爆炸
-                return connection.streamCommands().xAdd(byteRecord, RedisStreamCommands.XAddOptions.maxlen(SEND_MAX_LEN));
-            };
-            return redisTemplate.execute(callback, true);
+            byte[] payload = objectMapper.writeValueAsBytes(msg);
+            //按保留策略裁剪，避免消息太多导致 redis 服务器的内存爆炸
+            return redisTemplate.execute((RedisCallback<RecordId>) connection ->
+                    redisStreamRetention.xAdd(connection, streamKey, payload), true);
         } catch (JsonProcessingException e) {
             log.error("redis stream add 消息序列化失败:", e);
             throw new RuntimeException(e);
@@ -279,12 +620,14 @@ public class RedisServiceImpl implements RedisService {
     }
 
     @Override
+    @Deprecated
     public Boolean lock(String lockKey) {
         // 默认过期1000毫秒
         return lock(lockKey, 1000L);
     }
 
     @Override
+    @Deprecated
     public Boolean lock(String lockKey, Long releaseTime) {
         // 利用lambda表达式
         return redisTemplate.execute((RedisCallback<Boolean>) connection -> {
@@ -310,8 +653,324 @@ public class RedisServiceImpl implements RedisService {
     }
 
     @Override
+    @Deprecated
     public void unlock(String lockKey) {
         redisTemplate.delete(lockKey);
     }
-}
 
+    @Override
+    public boolean tryLock(String lockKey, long waitTime, TimeUnit unit) {
+        return tryLock(lockKey, waitTime, -1, unit);
+    }
+
+    @Override
+    public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(waitTime);
+        boolean watchdog = leaseTime <= 0;
+        long leaseMillis = watchdog ? lockWatchdogTimeout : unit.toMillis(leaseTime);
+        String owner = lockOwner();
+        Long ttl = acquireLock(lockKey, leaseMillis, owner, watchdog);
+        if (ttl == null) {
+            return true;
+        }
+        if (waitTime <= 0) {
+            return false;
+        }
+        LockWaiter waiter = lockWaiters.compute(lockKey, (k, w) -> {
+            LockWaiter lockWaiter = w == null ? new LockWaiter() : w;
+            lockWaiter.count++;
+            return lockWaiter;
+        });
+        try {
+            // 登记等待后再尝试一次,避免错过登记前发出的释放通知
+            while ((ttl = acquireLock(lockKey, leaseMillis, owner, watchdog)) != null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // 持有者宕机时不会有释放通知,最多等到锁过期
+                long waitNanos = ttl >= 0 ? Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(ttl)) : remaining;
+                waiter.semaphore.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lockWaiters.computeIfPresent(lockKey, (k, w) -> --w.count == 0 ? null : w);
+        }
+    }
+
+    @Override
+    public void releaseLock(String lockKey) {
+        Long result = redisTemplate.execute(RedisScripts.UNLOCK, RedisSerializer.byteArray(), null,
+                Arrays.asList(lockKey, LOCK_CHANNEL), lockOwner().getBytes(StandardCharsets.UTF_8),
+                lockKey.getBytes(StandardCharsets.UTF_8));
+        if (result != null && result == 1) {
+            LockRenewal renewal = lockRenewals.get(renewalKey(lockKey, lockOwner()));
+            if (renewal != null) {
+                renewal.cancel();
+            }
+        }
+        if (result == null || result < 0) {
+            throw new IllegalMonitorStateException("当前线程未持有锁:" + lockKey);
+        }
+    }
+
+    /**
+     * 尝试获取锁,使用看门狗时获取成功后开始续期
+     *
+     * @return 获取成功返回null,否则返回锁的剩余时间(毫秒)
+     */
+    private Long acquireLock(String lockKey, long leaseMillis, String owner, boolean watchdog) {
+        Long ttl = execute(RedisScripts.LOCK, lockKey, rawNumber(leaseMillis), owner.getBytes(StandardCharsets.UTF_8));
+        if (ttl == null && watchdog) {
+            lockRenewals.computeIfAbsent(renewalKey(lockKey, owner), k -> new LockRenewal(k, lockKey, owner).schedule());
+        }
+        return ttl;
+    }
+
+    private static String renewalKey(String lockKey, String owner) {
+        return lockKey + "@" + owner;
+    }
+
+    /**
+     * 锁持有者标识,节点加线程
+     */
+    private String lockOwner() {
+        return nodeId + ":" + Thread.currentThread().getId();
+    }
+
+    /**
+     * 按 {@link #PIPELINE_BATCH_SIZE} 分批,每批在一个pipeline中提交
+     *
+     * @param items   需要处理的数据
+     * @param command 每批数据执行的命令
+     */
+    private <T> void executePipelined(Collection<T> items, BiConsumer<RedisConnection, List<T>> command) {
+        for (List<T> batch : partition(items)) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                command.accept(connection, batch);
+                return null;
+            });
+        }
+    }
+
+    private static <T> List<List<T>> partition(Collection<T> items) {
+        List<List<T>> batches = new ArrayList<>(items.size() / PIPELINE_BATCH_SIZE + 1);
+        List<T> batch = new ArrayList<>(Math.min(items.size(), PIPELINE_BATCH_SIZE));
+        for (T item : items) {
+            batch.add(item);
+            if (batch.size() == PIPELINE_BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>(PIPELINE_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private void set(RedisConnection connection, String key, Object value, long time) {
+        Expiration expiration = time > 0 ? Expiration.seconds(time) : Expiration.persistent();
+        connection.stringCommands().set(rawKey(key), rawValue(value), expiration, RedisStringCommands.SetOption.upsert());
+    }
+
+    private static void expire(RedisConnection connection, byte[] rawKey, long time) {
+        if (time > 0) {
+            connection.keyCommands().expire(rawKey, time);
+        }
+    }
+
+    /**
+     * 执行lua脚本,参数已序列化为字节
+     */
+    private <T> T execute(RedisScript<T> script, String key, Object... args) {
+        return redisTemplate.execute(script, RedisSerializer.byteArray(), null, Collections.singletonList(key), args);
+    }
+
+    /**
+     * 组装脚本参数,第一个参数为过期时间,其后为序列化后的值
+     */
+    private Object[] scriptArgs(long time, Object[] values) {
+        Object[] args = new Object[values.length + 1];
+        args[0] = rawNumber(time);
+        for (int i = 0; i < values.length; i++) {
+            args[i + 1] = rawValue(values[i]);
+        }
+        return args;
+    }
+
+    private static byte[][] rawStrings(String[] values) {
+        byte[][] rawValues = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            rawValues[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return rawValues;
+    }
+
+    private static byte[] rawNumber(long number) {
+        return Long.toString(number).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 基于位图的布隆过滤器,位置在本地计算,置位及判断在lua脚本中一次完成
+     */
+    private class BloomFilter implements RedisBloomFilter {
+        private final String key;
+        private final long bitSize;
+        private final int hashFunctions;
+
+        BloomFilter(String key, long bitSize, int hashFunctions) {
+            this.key = key;
+            this.bitSize = bitSize;
+            this.hashFunctions = hashFunctions;
+        }
+
+        @Override
+        public boolean add(String value) {
+            return addAll(Collections.singletonList(value)) > 0;
+        }
+
+        @Override
+        public long addAll(Collection<String> values) {
+            long added = 0;
+            for (List<String> batch : partition(values)) {
+                Object[] args = new Object[batch.size() * hashFunctions + 1];
+                args[0] = rawNumber(hashFunctions);
+                int i = 1;
+                for (String value : batch) {
+                    i = positions(value, args, i);
+                }
+                Long result = execute(RedisScripts.BLOOM_ADD, key, args);
+                added += result == null ? 0 : result;
+            }
+            return added;
+        }
+
+        @Override
+        public boolean mightContain(String value) {
+            Object[] args = new Object[hashFunctions];
+            positions(value, args, 0);
+            return Boolean.TRUE.equals(execute(RedisScripts.BLOOM_EXISTS, key, args));
+        }
+
+        @Override
+        public long bitSize() {
+            return bitSize;
+        }
+
+        @Override
+        public int hashFunctions() {
+            return hashFunctions;
+        }
+
+        /**
+         * 采用Guava布隆过滤器的双重哈希方式计算属性对应的位
+         *
+         * @return 写入后的下一个下标
+         */
+        private int positions(String value, Object[] args, int index) {
+            long[] hash = MurmurHash.hash128(value.getBytes(StandardCharsets.UTF_8));
+            long combined = hash[0];
+            for (int i = 0; i < hashFunctions; i++) {
+                args[index++] = rawNumber((combined & Long.MAX_VALUE) % bitSize);
+                combined += hash[1];
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 单个锁在本节点的等待者
+     */
+    private static class LockWaiter {
+        private final Semaphore semaphore = new Semaphore(0, true);
+        /**
+         * 等待线程数,只在ConcurrentHashMap.compute中修改
+         */
+        private int count;
+    }
+
+    /**
+     * 单个持有者的看门狗续期任务,停止时只移除自己,不影响之后同一key上登记的任务
+     */
+    private class LockRenewal implements Runnable {
+        private final String renewalKey;
+        private final String lockKey;
+        private final String owner;
+        private volatile ScheduledFuture<?> future;
+
+        LockRenewal(String renewalKey, String lockKey, String owner) {
+            this.renewalKey = renewalKey;
+            this.lockKey = lockKey;
+            this.owner = owner;
+        }
+
+        LockRenewal schedule() {
+            future = lockWatchdog.scheduleAtFixedRate(this, lockWatchdogTimeout / 3, lockWatchdogTimeout / 3,
+                    TimeUnit.MILLISECONDS);
+            return this;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Boolean renewed = execute(RedisScripts.RENEW_LOCK, lockKey, rawNumber(lockWatchdogTimeout),
+                        owner.getBytes(StandardCharsets.UTF_8));
+                if (!Boolean.TRUE.equals(renewed)) {
+                    cancel();
+                }
+            } catch (Exception e) {
+                // 续期失败时保留任务,下次继续尝试
+                log.warn("redis锁续期失败;{}", lockKey, e);
+            }
+        }
+
+        void cancel() {
+            lockRenewals.remove(renewalKey, this);
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+
+    private static ScanOptions scanOptions(String pattern, long count) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions().count(count);
+        if (pattern != null) {
+            builder.match(pattern);
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+
+    private byte[][] rawValues(Collection<?> values) {
+        byte[][] rawValues = new byte[values.size()][];
+        int i = 0;
+        for (Object value : values) {
+            rawValues[i++] = rawValue(value);
+        }
+        return rawValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawHashKey(Object hashKey) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashKeySerializer()).serialize(hashKey);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawHashValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    }
+}
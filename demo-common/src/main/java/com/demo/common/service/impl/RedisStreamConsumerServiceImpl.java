@@ -0,0 +1,498 @@
+package com.demo.common.service.impl;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.demo.common.annotation.RedisStreamListener;
+import com.demo.common.domain.StreamConsumerMetrics;
+import com.demo.common.service.RedisStreamConsumerService;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis stream 消费组实现类
+ * 每个消费者一个拉取线程,批量 XREADGROUP 后交给有界线程池处理,整批处理完后一次 XACK;
+ * 定时用 XPENDING + XCLAIM 认领其他消费者长时间未确认的消息,并刷新运行指标
+ */
+@Slf4j
+public class RedisStreamConsumerServiceImpl implements RedisStreamConsumerService, SmartInitializingSingleton, ApplicationContextAware {
+
+    /**
+     * 每次拉取的最大消息数
+     */
+    @Value("${redis.stream.consumer.count:100}")
+    private int count;
+    /**
+     * 没有消息时阻塞等待的时间,单位毫秒
+     */
+    @Value("${redis.stream.consumer.block-millis:2000}")
+    private long blockMillis;
+    /**
+     * 消息处理线程数
+     */
+    @Value("${redis.stream.consumer.threads:8}")
+    private int threads;
+    /**
+     * 消息处理排队数,超出后由拉取线程自己处理,拉取随之放慢
+     */
+    @Value("${redis.stream.consumer.queue-capacity:1000}")
+    private int queueCapacity;
+    /**
+     * 认领未确认消息及刷新指标的间隔,单位毫秒
+     */
+    @Value("${redis.stream.consumer.reclaim-interval-millis:30000}")
+    private long reclaimIntervalMillis;
+    /**
+     * 消息投递后超过该时间未确认才会被认领,单位毫秒
+     */
+    @Value("${redis.stream.consumer.min-idle-millis:60000}")
+    private long minIdleMillis;
+    /**
+     * 最大投递次数,超过后记录日志并确认,不再重试
+     */
+    @Value("${redis.stream.consumer.max-deliveries:16}")
+    private long maxDeliveries;
+    /**
+     * 当前节点的消费者名称,为空时使用主机名加端口,重启后不变
+     */
+    @Value("${redis.stream.consumer.name:}")
+    private String consumerName;
+    @Value("${server.port:8080}")
+    private int serverPort;
+    /**
+     * 其他消费者空闲超过该时间且没有待确认消息时从消费组中删除,单位毫秒
+     */
+    @Value("${redis.stream.consumer.remove-idle-millis:3600000}")
+    private long removeIdleMillis;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final byte[] payloadField = RedisServiceImpl.STREAM_PAYLOAD_FIELD.getBytes(StandardCharsets.UTF_8);
+    private ApplicationContext applicationContext;
+    private ThreadPoolExecutor workerExecutor;
+    private ExecutorService pollExecutor;
+    private ScheduledExecutorService reclaimScheduler;
+    private volatile boolean running = true;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isBlank(consumerName)) {
+            consumerName = defaultConsumerName();
+        }
+        workerExecutor = new ThreadPoolExecutor(threads,
+                threads,
+                0,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                ThreadFactoryBuilder.create().setNamePrefix("redis-stream-worker-").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pollExecutor = Executors.newCachedThreadPool(
+                ThreadFactoryBuilder.create().setNamePrefix("redis-stream-poller-").setDaemon(true).build());
+        reclaimScheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("redis-stream-reclaim-").setDaemon(true).build());
+        reclaimScheduler.scheduleWithFixedDelay(this::reclaimAll, reclaimIntervalMillis, reclaimIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        reclaimScheduler.shutdownNow();
+        pollExecutor.shutdown();
+        // 等待阻塞中的拉取返回,已拉取的消息处理完后再确认
+        pollExecutor.awaitTermination(blockMillis + 5000, TimeUnit.MILLISECONDS);
+        workerExecutor.shutdown();
+    }
+
+    /**
+     * 所有单例创建完成后注册加了注解的方法
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String beanName : applicationContext.getBeanNamesForType(Object.class, false, false)) {
+            Class<?> type = applicationContext.getType(beanName);
+            if (type == null || !AnnotationUtils.isCandidateClass(type, RedisStreamListener.class)) {
+                continue;
+            }
+            Map<Method, RedisStreamListener> methods = MethodIntrospector.selectMethods(ClassUtils.getUserClass(type),
+                    (MethodIntrospector.MetadataLookup<RedisStreamListener>) method ->
+                            AnnotatedElementUtils.findMergedAnnotation(method, RedisStreamListener.class));
+            if (methods.isEmpty()) {
+                continue;
+            }
+            Object bean = applicationContext.getBean(beanName);
+            methods.forEach((method, listener) -> {
+                if (method.getParameterCount() != 1) {
+                    throw new IllegalStateException("RedisStreamListener方法只能有一个参数:" + method);
+                }
+                Method invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+                ReflectionUtils.makeAccessible(invocable);
+                subscribe(listener.streamKey(), listener.group(),
+                        objectMapper.constructType(method.getGenericParameterTypes()[0]),
+                        msg -> ReflectionUtils.invokeMethod(invocable, bean, msg));
+            });
+        }
+    }
+
+    @Override
+    public <T> void subscribe(String streamKey, String group, Class<T> type, java.util.function.Consumer<T> handler) {
+        subscribe(streamKey, group, objectMapper.constructType(type), msg -> handler.accept(type.cast(msg)));
+    }
+
+    @Override
+    public List<StreamConsumerMetrics> metrics() {
+        List<StreamConsumerMetrics> metrics = new ArrayList<>(subscriptions.size());
+        for (Subscription subscription : subscriptions) {
+            metrics.add(subscription.snapshot());
+        }
+        return metrics;
+    }
+
+    private void subscribe(String streamKey, String group, JavaType type, java.util.function.Consumer<Object> handler) {
+        Subscription subscription = new Subscription(streamKey, group, type, handler);
+        createGroup(subscription);
+        subscriptions.add(subscription);
+        pollExecutor.execute(() -> poll(subscription));
+        log.info("redis stream 消费者已注册;{} {}", streamKey, group);
+    }
+
+    /**
+     * 创建消费组,从最新消息开始消费;组已存在时忽略
+     */
+    private void createGroup(Subscription subscription) {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(subscription.rawKey, subscription.group, ReadOffset.latest(), true));
+        } catch (Exception e) {
+            if (!String.valueOf(e.getMessage()).contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 拉取线程,使用独占连接阻塞读取
+     */
+    private void poll(Subscription subscription) {
+        Consumer consumer = Consumer.from(subscription.group, consumerName);
+        StreamReadOptions options = StreamReadOptions.empty().count(count).block(Duration.ofMillis(blockMillis));
+        @SuppressWarnings("unchecked")
+        StreamOffset<byte[]>[] offsets = new StreamOffset[]{StreamOffset.create(subscription.rawKey, ReadOffset.lastConsumed())};
+        RedisConnection connection = null;
+        while (running) {
+            try {
+                if (connection == null) {
+                    connection = redisTemplate.getRequiredConnectionFactory().getConnection();
+                }
+                List<ByteRecord> records = connection.streamCommands().xReadGroup(consumer, options, offsets);
+                if (records == null || records.isEmpty()) {
+                    continue;
+                }
+                subscription.received.add(records.size());
+                List<RecordId> acks = dispatch(subscription, records);
+                if (!acks.isEmpty()) {
+                    connection.streamCommands().xAck(subscription.rawKey, subscription.group, acks.toArray(new RecordId[0]));
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("redis stream 拉取消息失败;{} {}", subscription.streamKey, subscription.group, e);
+                connection = close(connection);
+                // stream被删除后消费组也会消失,重新创建
+                recreateGroupQuietly(subscription);
+                sleepQuietly(blockMillis);
+            }
+        }
+        close(connection);
+    }
+
+    /**
+     * 并行处理一批消息,等待全部完成
+     *
+     * @return 处理成功需要确认的消息id
+     */
+    private List<RecordId> dispatch(Subscription subscription, List<ByteRecord> records) {
+        List<CompletableFuture<RecordId>> futures = new ArrayList<>(records.size());
+        for (ByteRecord record : records) {
+            futures.add(CompletableFuture.supplyAsync(() -> subscription.handle(record) ? record.getId() : null, workerExecutor));
+        }
+        List<RecordId> acks = new ArrayList<>(records.size());
+        for (CompletableFuture<RecordId> future : futures) {
+            RecordId id = future.join();
+            if (id != null) {
+                acks.add(id);
+            }
+        }
+        return acks;
+    }
+
+    private void reclaimAll() {
+        for (Subscription subscription : subscriptions) {
+            try {
+                reclaim(subscription);
+                removeIdleConsumers(subscription);
+                refreshMetrics(subscription);
+            } catch (Exception e) {
+                log.error("redis stream 认领消息失败;{} {}", subscription.streamKey, subscription.group, e);
+            }
+        }
+    }
+
+    /**
+     * 认领超过 minIdleMillis 未确认的消息并重新处理,超过最大投递次数的直接确认
+     */
+    private void reclaim(Subscription subscription) {
+        PendingMessages pendingMessages = redisTemplate.execute((RedisCallback<PendingMessages>) connection ->
+                connection.streamCommands().xPending(subscription.rawKey, subscription.group, Range.unbounded(), (long) count));
+        if (pendingMessages == null || pendingMessages.isEmpty()) {
+            return;
+        }
+        List<RecordId> claims = new ArrayList<>();
+        List<RecordId> dead = new ArrayList<>();
+        for (PendingMessage message : pendingMessages) {
+            if (message.getElapsedTimeSinceLastDelivery().toMillis() < minIdleMillis) {
+                continue;
+            }
+            if (message.getTotalDeliveryCount() >= maxDeliveries) {
+                dead.add(message.getId());
+            } else {
+                claims.add(message.getId());
+            }
+        }
+        if (!dead.isEmpty()) {
+            log.error("redis stream 消息超过最大投递次数,不再重试;{} {} {}", subscription.streamKey, subscription.group, dead);
+            ack(subscription, dead);
+            subscription.deadLettered.add(dead.size());
+        }
+        if (claims.isEmpty()) {
+            return;
+        }
+        // 带上minIdle,多个节点同时认领时只有一个成功
+        RedisStreamCommands.XClaimOptions options = RedisStreamCommands.XClaimOptions
+                .minIdle(Duration.ofMillis(minIdleMillis)).ids(claims.toArray(new RecordId[0]));
+        List<ByteRecord> records = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xClaim(subscription.rawKey, subscription.group, consumerName, options));
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        subscription.redelivered.add(records.size());
+        ack(subscription, dispatch(subscription, records));
+    }
+
+    /**
+     * 删除消费组中长期空闲且没有待确认消息的消费者,如已下线节点的消费者,其未确认消息已被认领
+     */
+    private void removeIdleConsumers(Subscription subscription) {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.streamCommands().xInfoConsumers(subscription.rawKey, subscription.group).forEach(consumer -> {
+                if (!consumerName.equals(consumer.consumerName()) && consumer.pendingCount() == 0
+                        && consumer.idleTimeMs() >= removeIdleMillis) {
+                    connection.streamCommands().xGroupDelConsumer(subscription.rawKey,
+                            Consumer.from(subscription.group, consumer.consumerName()));
+                    log.info("redis stream 删除空闲消费者;{} {} {}", subscription.streamKey, subscription.group, consumer.consumerName());
+                }
+            });
+            return null;
+        });
+    }
+
+    private void ack(Subscription subscription, List<RecordId> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.streamCommands().xAck(subscription.rawKey, subscription.group, ids.toArray(new RecordId[0])));
+    }
+
+    /**
+     * 刷新消费组的待确认数、落后时间及吞吐量
+     */
+    private void refreshMetrics(Subscription subscription) {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            StreamInfo.XInfoStream stream = connection.streamCommands().xInfo(subscription.rawKey);
+            connection.streamCommands().xInfoGroups(subscription.rawKey).forEach(group -> {
+                if (subscription.group.equals(group.groupName())) {
+                    subscription.pending = group.pendingCount();
+                    subscription.lagMillis = Math.max(0, idTime(stream.lastGeneratedId()) - idTime(group.lastDeliveredId()));
+                }
+            });
+            return null;
+        });
+        long now = System.currentTimeMillis();
+        long processed = subscription.processed.sum();
+        subscription.throughput = (processed - subscription.lastProcessed) * 1000.0 / Math.max(1, now - subscription.lastRefreshTime);
+        subscription.lastProcessed = processed;
+        subscription.lastRefreshTime = now;
+    }
+
+    private void recreateGroupQuietly(Subscription subscription) {
+        try {
+            createGroup(subscription);
+        } catch (Exception e) {
+            log.warn("redis stream 创建消费组失败;{} {}", subscription.streamKey, subscription.group, e);
+        }
+    }
+
+    /**
+     * stream消息id的毫秒时间部分
+     */
+    private static long idTime(String id) {
+        int index = id.indexOf('-');
+        return Long.parseLong(index < 0 ? id : id.substring(0, index));
+    }
+
+    private String defaultConsumerName() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + serverPort;
+        } catch (UnknownHostException e) {
+            log.warn("获取主机名失败,使用随机消费者名称", e);
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    private static RedisConnection close(RedisConnection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.warn("关闭redis连接失败", e);
+            }
+        }
+        return null;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一个消费组上的消费者
+     */
+    private class Subscription {
+        private final String streamKey;
+        private final byte[] rawKey;
+        private final String group;
+        private final JavaType type;
+        private final java.util.function.Consumer<Object> handler;
+        private final LongAdder received = new LongAdder();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder redelivered = new LongAdder();
+        private final LongAdder deadLettered = new LongAdder();
+        private volatile long pending;
+        private volatile long lagMillis;
+        private volatile double throughput;
+        private long lastProcessed;
+        private long lastRefreshTime = System.currentTimeMillis();
+
+        Subscription(String streamKey, String group, JavaType type, java.util.function.Consumer<Object> handler) {
+            this.streamKey = streamKey;
+            this.rawKey = (RedisServiceImpl.STREAM_KEY_PREFIX + streamKey).getBytes(StandardCharsets.UTF_8);
+            this.group = group;
+            this.type = type;
+            this.handler = handler;
+        }
+
+        /**
+         * 处理单条消息
+         *
+         * @return 是否处理成功
+         */
+        boolean handle(ByteRecord record) {
+            try {
+                handler.accept(objectMapper.readValue(payload(record), type));
+                processed.increment();
+                return true;
+            } catch (Exception e) {
+                failed.increment();
+                log.error("redis stream 消息处理失败;{} {} {}", streamKey, group, record.getId(), e);
+                return false;
+            }
+        }
+
+        private byte[] payload(ByteRecord record) {
+            for (Map.Entry<byte[], byte[]> entry : record.getValue().entrySet()) {
+                if (Arrays.equals(payloadField, entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+            throw new IllegalArgumentException("消息缺少payload字段");
+        }
+
+        StreamConsumerMetrics snapshot() {
+            StreamConsumerMetrics metrics = new StreamConsumerMetrics();
+            metrics.setStreamKey(streamKey);
+            metrics.setGroup(group);
+            metrics.setConsumer(consumerName);
+            metrics.setReceived(received.sum());
+            metrics.setProcessed(processed.sum());
+            metrics.setFailed(failed.sum());
+            metrics.setRedelivered(redelivered.sum());
+            metrics.setDeadLettered(deadLettered.sum());
+            metrics.setPending(pending);
+            metrics.setLagMillis(lagMillis);
+            metrics.setThroughput(throughput);
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.demo.common.service.impl;
+
+import com.demo.common.enums.StreamBackpressure;
+import com.demo.common.service.RedisStreamProducer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis stream 异步批量发送实现类
+ * 单个后台线程从队列取消息,攒够 batchSize 条或等待 lingerMillis 后用一个pipeline发送
+ * 注意 : CompletableFuture 在发送线程上完成,回调中不要做耗时操作
+ */
+@Slf4j
+public class RedisStreamProducerImpl implements RedisStreamProducer {
+
+    /**
+     * 队列长度
+     */
+    @Value("${redis.stream.producer.queue-capacity:10000}")
+    private int queueCapacity;
+    /**
+     * 每个pipeline最多发送的消息数
+     */
+    @Value("${redis.stream.producer.batch-size:500}")
+    private int batchSize;
+    /**
+     * 攒批最长等待时间,单位毫秒
+     */
+    @Value("${redis.stream.producer.linger-millis:5}")
+    private long lingerMillis;
+    /**
+     * 队列满时的处理策略
+     */
+    @Value("${redis.stream.producer.backpressure:BLOCK}")
+    private StreamBackpressure backpressure;
+    /**
+     * BLOCK 策略下最长等待时间,单位毫秒
+     */
+    @Value("${redis.stream.producer.block-timeout-millis:1000}")
+    private long blockTimeoutMillis;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+    @Resource
+    private ObjectMapper objectMapper;
+    @Resource
+    private RedisStreamRetention redisStreamRetention;
+
+    private BlockingQueue<PendingRecord> queue;
+    private Thread flusher;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        flusher = new Thread(this::flushLoop, "redis-stream-producer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 停止接收新消息,发送完队列中剩余的消息;超时未发送的消息以失败结束
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } finally {
+            failPending();
+        }
+    }
+
+    @Override
+    public CompletableFuture<RecordId> send(String streamKey, Object msg) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("stream 发送已关闭"));
+        }
+        PendingRecord pending;
+        try {
+            pending = new PendingRecord(streamKey, objectMapper.writeValueAsBytes(msg));
+        } catch (JsonProcessingException e) {
+            log.error("redis stream add 消息序列化失败:", e);
+            return CompletableFuture.failedFuture(e);
+        }
+        if (queue.offer(pending)) {
+            return enqueued(pending);
+        }
+        switch (backpressure) {
+            case BLOCK:
+                try {
+                    if (queue.offer(pending, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return enqueued(pending);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return CompletableFuture.failedFuture(new RejectedExecutionException("stream 发送队列已满"));
+            case CALLER_RUNS:
+                try {
+                    return CompletableFuture.completedFuture(redisTemplate.execute(
+                            (RedisCallback<RecordId>) connection -> redisStreamRetention.xAdd(connection, pending.streamKey, pending.payload), true));
+                } catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            default:
+                return CompletableFuture.failedFuture(new RejectedExecutionException("stream 发送队列已满"));
+        }
+    }
+
+    /**
+     * 加入队列后再检查一次,关闭后发送线程可能已经退出,仍在队列中的消息不会再被发送
+     */
+    private CompletableFuture<RecordId> enqueued(PendingRecord pending) {
+        if (!running && queue.remove(pending)) {
+            pending.future.completeExceptionally(new RejectedExecutionException("stream 发送已关闭"));
+        }
+        return pending.future;
+    }
+
+    private void flushLoop() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("redis stream 批量发送失败", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        failPending();
+    }
+
+    private void failPending() {
+        PendingRecord pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new RejectedExecutionException("stream 发送已关闭"));
+        }
+    }
+
+    /**
+     * 一个pipeline发送一批消息,按顺序完成对应的future
+     */
+    private void flush(List<PendingRecord> batch) {
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PendingRecord pending : batch) {
+                    redisStreamRetention.xAdd(connection, pending.streamKey, pending.payload);
+                }
+                return null;
+            }, RedisSerializer.string());
+        } catch (RedisPipelineException e) {
+            // 部分命令失败时,结果中对应位置为异常
+            results = e.getPipelineResult();
+        } catch (Exception e) {
+            for (PendingRecord pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof String) {
+                batch.get(i).future.complete(RecordId.of((String) result));
+            } else if (result instanceof Throwable) {
+                batch.get(i).future.completeExceptionally((Throwable) result);
+            } else {
+                batch.get(i).future.completeExceptionally(new IllegalStateException("redis stream 发送结果缺失"));
+            }
+        }
+    }
+
+    /**
+     * 等待发送的消息
+     */
+    private static class PendingRecord {
+        private final String streamKey;
+        private final byte[] payload;
+        private final CompletableFuture<RecordId> future = new CompletableFuture<>();
+
+        PendingRecord(String streamKey, byte[] payload) {
+            this.streamKey = streamKey;
+            this.payload = payload;
+        }
+    }
+}
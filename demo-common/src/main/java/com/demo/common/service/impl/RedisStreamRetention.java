@@ -0,0 +1,207 @@
+package com.demo.common.service.impl;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.demo.common.domain.StreamRetentionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis stream 消息保留策略
+ * 写入时按策略在 XADD 上带 MAXLEN/MINID 裁剪,其余条件由后台定时 XTRIM,只有需要后台裁剪的stream才会登记;
+ * spring-data-redis 的 XAddOptions 及 xTrim 不支持 MINID,这里直接拼装命令
+ * MINID 需要 redis 6.2 及以上,配置了 min-age 而服务器版本较低时启动失败
+ */
+@Slf4j
+public class RedisStreamRetention {
+
+    private static final byte[] XADD_AUTO_ID = "*".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MAXLEN = "MAXLEN".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MINID = "MINID".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] APPROXIMATE = "~".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAYLOAD_FIELD = RedisServiceImpl.STREAM_PAYLOAD_FIELD.getBytes(StandardCharsets.UTF_8);
+    /**
+     * 支持 MINID 的最低 redis 版本
+     */
+    private static final int[] MINID_MIN_VERSION = {6, 2};
+
+    @Resource
+    private StreamRetentionProperties streamRetentionProperties;
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 需要后台裁剪的stream,包括配置过的及本节点写入过的;写入时已完成全部裁剪的不登记,已删除的stream在裁剪时移除
+     */
+    private final Set<String> streamKeys = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService trimmer;
+
+    @PostConstruct
+    public void init() {
+        checkMinIdSupported();
+        streamRetentionProperties.getStreams().forEach((streamKey, policy) -> {
+            if (needsBackgroundTrim(policy)) {
+                streamKeys.add(streamKey);
+            }
+        });
+        long interval = streamRetentionProperties.getTrimInterval().toMillis();
+        trimmer = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("redis-stream-trimmer-").setDaemon(true).build());
+        trimmer.scheduleWithFixedDelay(this::trimAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        trimmer.shutdownNow();
+    }
+
+    /**
+     * 发送stream消息,消息内容放在 payload 字段
+     *
+     * @param connection redis连接,pipeline中调用时返回null,结果为消息id的字节
+     * @param streamKey  消息通道,不带前缀
+     * @param payload    json序列化后的消息内容
+     * @return 消息id
+     */
+    public RecordId xAdd(RedisConnection connection, String streamKey, byte[] payload) {
+        StreamRetentionProperties.Policy policy = policy(streamKey);
+        if (needsBackgroundTrim(policy)) {
+            streamKeys.add(streamKey);
+        }
+        List<byte[]> args = new ArrayList<>(7);
+        args.add(rawStreamKey(streamKey));
+        if (policy.isTrimOnWrite()) {
+            if (policy.getMaxLen() != null) {
+                addTrimArgs(args, MAXLEN, policy.isApproximate(), String.valueOf(policy.getMaxLen()));
+            } else if (policy.getMinAge() != null) {
+                addTrimArgs(args, MINID, policy.isApproximate(), minId(policy));
+            }
+        }
+        args.add(XADD_AUTO_ID);
+        args.add(PAYLOAD_FIELD);
+        args.add(payload);
+        Object id = connection.execute("XADD", args.toArray(new byte[0][]));
+        return id instanceof byte[] ? RecordId.of(new String((byte[]) id, StandardCharsets.UTF_8)) : null;
+    }
+
+    /**
+     * 按策略裁剪所有stream中写入时没有处理的条件
+     */
+    private void trimAll() {
+        for (String streamKey : streamKeys) {
+            try {
+                if (!trim(streamKey)) {
+                    streamKeys.remove(streamKey);
+                }
+            } catch (Exception e) {
+                log.error("redis stream 裁剪失败;{}", streamKey, e);
+            }
+        }
+    }
+
+    /**
+     * 裁剪写入时没有处理的条件
+     *
+     * @return stream是否存在
+     */
+    private boolean trim(String streamKey) {
+        StreamRetentionProperties.Policy policy = policy(streamKey);
+        if (policy.getMaxLen() != null && !maxLenOnWrite(policy)
+                && !xTrim(streamKey, MAXLEN, policy.isApproximate(), String.valueOf(policy.getMaxLen()))) {
+            return false;
+        }
+        if (policy.getMinAge() != null && !minAgeOnWrite(policy)) {
+            return xTrim(streamKey, MINID, policy.isApproximate(), minId(policy));
+        }
+        return true;
+    }
+
+    private boolean xTrim(String streamKey, byte[] strategy, boolean approximate, String threshold) {
+        List<byte[]> args = new ArrayList<>(3);
+        addTrimArgs(args, strategy, approximate, threshold);
+        Long trimmed = redisTemplate.execute(RedisScripts.XTRIM, RedisSerializer.byteArray(), null,
+                Collections.singletonList(RedisServiceImpl.STREAM_KEY_PREFIX + streamKey), args.toArray());
+        log.debug("redis stream 裁剪;{} {}", streamKey, trimmed);
+        return trimmed == null || trimmed >= 0;
+    }
+
+    private static boolean maxLenOnWrite(StreamRetentionProperties.Policy policy) {
+        return policy.isTrimOnWrite() && policy.getMaxLen() != null;
+    }
+
+    private static boolean minAgeOnWrite(StreamRetentionProperties.Policy policy) {
+        return policy.isTrimOnWrite() && !maxLenOnWrite(policy) && policy.getMinAge() != null;
+    }
+
+    /**
+     * 是否有写入时没有处理的条件
+     */
+    private static boolean needsBackgroundTrim(StreamRetentionProperties.Policy policy) {
+        return policy.getMaxLen() != null && !maxLenOnWrite(policy)
+                || policy.getMinAge() != null && !minAgeOnWrite(policy);
+    }
+
+    /**
+     * 配置了 min-age 时检查服务器是否支持 MINID,低版本的服务器上每次裁剪都会报错
+     */
+    private void checkMinIdSupported() {
+        boolean minAge = streamRetentionProperties.getDefaultPolicy().getMinAge() != null
+                || streamRetentionProperties.getStreams().values().stream().anyMatch(policy -> policy.getMinAge() != null);
+        if (!minAge) {
+            return;
+        }
+        Properties info = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("server"));
+        String version = info == null ? null : info.getProperty("redis_version");
+        if (version == null) {
+            log.warn("无法获取redis版本,min-age 需要 redis 6.2 及以上");
+            return;
+        }
+        String[] parts = version.split("\\.");
+        int major = Integer.parseInt(parts[0]);
+        int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        if (major < MINID_MIN_VERSION[0] || major == MINID_MIN_VERSION[0] && minor < MINID_MIN_VERSION[1]) {
+            throw new IllegalStateException("redis stream min-age 保留策略需要 redis 6.2 及以上,当前版本 " + version);
+        }
+    }
+
+    private StreamRetentionProperties.Policy policy(String streamKey) {
+        StreamRetentionProperties.Policy policy = streamRetentionProperties.getStreams().get(streamKey);
+        return policy != null ? policy : streamRetentionProperties.getDefaultPolicy();
+    }
+
+    private static void addTrimArgs(List<byte[]> args, byte[] strategy, boolean approximate, String threshold) {
+        args.add(strategy);
+        if (approximate) {
+            args.add(APPROXIMATE);
+        }
+        args.add(threshold.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 消息id以毫秒时间开头,早于保留时间的id都会被删除
+     */
+    private static String minId(StreamRetentionProperties.Policy policy) {
+        return (System.currentTimeMillis() - policy.getMinAge().toMillis()) + "-0";
+    }
+
+    private static byte[] rawStreamKey(String streamKey) {
+        return (RedisServiceImpl.STREAM_KEY_PREFIX + streamKey).getBytes(StandardCharsets.UTF_8);
+    }
+}
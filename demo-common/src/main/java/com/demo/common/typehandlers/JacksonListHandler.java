@@ -2,9 +2,8 @@ package com.demo.common.typehandlers;
 
 import com.baomidou.mybatisplus.extension.handlers.AbstractJsonTypeHandler;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.IOException;
@@ -15,6 +14,7 @@ import java.util.List;
 /**
  * 字段为实体集合类型时使用
  * 使用方法:新Handler继承JacksonListHandler,泛型指定实体类型
+ * 解析时按缓存的 {@code List<T>} 类型直接流式绑定,不再先构建 JsonNode 树再逐个转换
  *
  * @author molong
  * @date 2021/9/6
@@ -28,27 +28,25 @@ public class JacksonListHandler<T>  extends AbstractJsonTypeHandler<List<T>> {
      */
     private final Class<T> tClass;
 
+    /**
+     * 按 {@code ArrayList<T>} 类型创建的reader,线程安全,每个Handler创建一次
+     */
+    private final ObjectReader listReader;
+
     /**
      * 构造方法 设置指定的实体类型
      */
     @SuppressWarnings("unchecked")
     public JacksonListHandler() {
         this.tClass = (Class<T>) ((ParameterizedType)getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+        this.listReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(ArrayList.class, this.tClass));
     }
 
 
     @Override
     protected List<T> parse(String json) {
         try {
-            JsonNode jsonNode = objectMapper.readTree(json);
-            ArrayNode arrayNode = (ArrayNode) jsonNode;
-            ArrayList<T> result = new ArrayList<>(arrayNode.size());
-            if (!arrayNode.isEmpty()) {
-                for (JsonNode node : arrayNode) {
-                    result.add(objectMapper.treeToValue(node, this.tClass));
-                }
-            }
-            return result;
+            return listReader.readValue(json);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
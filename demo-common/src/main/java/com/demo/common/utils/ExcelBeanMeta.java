@@ -0,0 +1,214 @@
+package com.demo.common.utils;
+
+import com.demo.common.annotation.ExcelTitle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * excel导出实体的列元数据
+ * 每个Class只解析一次:按字段声明顺序保存加了 {@link ExcelTitle} 的列,
+ * getter及枚举转换方法预先编译为 {@link Function},取值时不再做任何反射查找
+ */
+final class ExcelBeanMeta {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExcelBeanMeta.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType FUNCTION_FACTORY = MethodType.methodType(Function.class);
+
+    private static final MethodType FUNCTION_APPLY = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ExcelBeanMeta> CACHE = new ClassValue<ExcelBeanMeta>() {
+        @Override
+        protected ExcelBeanMeta computeValue(Class<?> type) {
+            return new ExcelBeanMeta(type);
+        }
+    };
+
+    /**
+     * 导出列,实体没有加注解时为空
+     */
+    private final List<ExcelColumn> columns;
+
+    /**
+     * 表头
+     */
+    private final List<String> titles;
+
+    private ExcelBeanMeta(Class<?> clazz) {
+        List<ExcelColumn> columnList = new ArrayList<>();
+        List<String> titleList = new ArrayList<>();
+        for (Field f : clazz.getDeclaredFields()) {
+            ExcelTitle title = f.getAnnotation(ExcelTitle.class);
+            if (title == null) {
+                continue;
+            }
+            String filedName = f.getName();
+            Function<Object, Object> getter = null;
+            Function<Object, Object> converter = null;
+            try {
+                getter = compile(clazz, clazz.getMethod("get" + filedName.substring(0, 1).toUpperCase() + filedName.substring(1)));
+                if (title.hasEnum()) {
+                    converter = compile(title.enumClass(), title.enumClass().getMethod(title.enumMethod(), title.enumMethodArgClass()));
+                }
+            } catch (Throwable e) {
+                logger.error("导出列解析异常;{}{}", filedName, e);
+            }
+            columnList.add(new ExcelColumn(filedName, getter, converter));
+            titleList.add(title.value());
+        }
+        this.columns = Collections.unmodifiableList(columnList);
+        this.titles = Collections.unmodifiableList(titleList);
+    }
+
+    /**
+     * 获取实体类型对应的元数据
+     * @param clazz 实体类型
+     * @return 元数据
+     */
+    static ExcelBeanMeta of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * 是否有导出列
+     * @return 实体没有加注解时返回false
+     */
+    boolean hasColumns() {
+        return !columns.isEmpty();
+    }
+
+    /**
+     * 获取表头
+     * @return 表头集合
+     */
+    List<String> getTitles() {
+        return titles;
+    }
+
+    /**
+     * 按列顺序提取一行数据,row会被清空后复用
+     * @param obj       数据实体
+     * @param row       行数据容器
+     * @param titleName 标题,用于记录日志
+     */
+    void fillRow(Object obj, List<Object> row, String titleName) {
+        row.clear();
+        for (ExcelColumn column : columns) {
+            row.add(column.getValue(obj, titleName));
+        }
+    }
+
+    /**
+     * 按列顺序提取一行数据
+     * @param obj       数据实体
+     * @param titleName 标题,用于记录日志
+     * @return 行数据
+     */
+    List<Object> getRow(Object obj, String titleName) {
+        List<Object> row = new ArrayList<>(columns.size());
+        fillRow(obj, row, titleName);
+        return row;
+    }
+
+    /**
+     * 将只有一个参数的方法(实例getter或静态枚举方法)编译为Function
+     * 公开且对当前类加载器可见的类使用 LambdaMetafactory 生成直接调用,否则退化为 MethodHandle 调用
+     * @param owner  方法所属的类
+     * @param method 方法
+     * @return 编译后的Function
+     * @throws Throwable 方法无法访问时抛出
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compile(Class<?> owner, Method method) throws Throwable {
+        boolean accessible = Modifier.isPublic(owner.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+        if (!accessible) {
+            method.setAccessible(true);
+        }
+        MethodHandle handle = LOOKUP.unreflect(method);
+        if (accessible && isVisible(owner)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", FUNCTION_FACTORY,
+                        FUNCTION_APPLY, handle, handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                logger.debug("LambdaMetafactory编译失败,使用MethodHandle;{}", method, e);
+            }
+        }
+        MethodHandle generic = handle.asType(FUNCTION_APPLY);
+        return obj -> {
+            try {
+                return generic.invokeExact(obj);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * 生成的lambda类由当前类的加载器定义,实体类必须对其可见
+     * @param owner 实体类型
+     * @return 是否可见
+     */
+    private static boolean isVisible(Class<?> owner) {
+        try {
+            return Class.forName(owner.getName(), false, ExcelBeanMeta.class.getClassLoader()) == owner;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 导出列
+     */
+    private static final class ExcelColumn {
+        private final String name;
+        private final Function<Object, Object> getter;
+        private final Function<Object, Object> converter;
+
+        ExcelColumn(String name, Function<Object, Object> getter, Function<Object, Object> converter) {
+            this.name = name;
+            this.getter = getter;
+            this.converter = converter;
+        }
+
+        /**
+         * 获取列值,枚举列转换为对应的中文
+         * @param obj       数据实体
+         * @param titleName 标题,用于记录日志
+         * @return 列值
+         */
+        Object getValue(Object obj, String titleName) {
+            if (getter == null) {
+                return null;
+            }
+            try {
+                Object value = getter.apply(obj);
+                if (converter != null) {
+                    value = converter.apply(value);
+                }
+                return value;
+            } catch (Exception e) {
+                logger.error("导出数据异常;{}{}{}", titleName, name, e);
+                return null;
+            }
+        }
+    }
+}
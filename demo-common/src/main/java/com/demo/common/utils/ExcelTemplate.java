@@ -1,13 +1,24 @@
 package com.demo.common.utils;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.IoUtil;
+import cn.hutool.poi.excel.BigExcelWriter;
+import cn.hutool.poi.excel.ExcelFileUtil;
 import cn.hutool.poi.excel.ExcelReader;
 import cn.hutool.poi.excel.ExcelUtil;
 import cn.hutool.poi.excel.ExcelWriter;
+import cn.hutool.poi.excel.sax.Excel07SaxReader;
+import cn.hutool.poi.excel.sax.handler.RowHandler;
 import com.demo.common.annotation.ExcelTitle;
+import com.demo.common.domain.ExcelSheet;
+import com.demo.common.exception.ApiException;
 import com.demo.common.exception.Asserts;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,10 +28,20 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -55,53 +76,9 @@ public class ExcelTemplate {
      * @param fileName  导出文件名
      */
     public static <T> void export(HttpServletResponse response, List<T> objects,String titleName,String fileName) {
-        List listMap = new ArrayList<>(objects.size());
         // 通过工具类创建writer，默认创建xls格式
-        int merge = 0;
         ExcelWriter writer = ExcelUtil.getWriter();
-        if (CollectionUtil.isNotEmpty(objects)) {
-            T obj = objects.get(0);
-            List<String> filedNames = createHeader(obj,writer);
-            if(CollectionUtil.isEmpty(filedNames)){
-                listMap.addAll(objects);
-            }else{
-                merge = filedNames.size()-1;
-                for (T p:objects) {
-                    Class<?> objClass = p.getClass();
-                    Field[] objClassDeclaredFields = objClass.getDeclaredFields();
-                    Map<String,Object> bean = new HashMap<>(objClassDeclaredFields.length);
-                    Stream.of(objClassDeclaredFields).forEach(f -> {
-                        String filedName = f.getName();
-                        if(filedNames.contains(filedName)){
-                            ExcelTitle title = f.getAnnotation(ExcelTitle.class);
-                            try {
-                                f.setAccessible(true);
-                                Method omethod = objClass.getMethod("get" + filedName.substring(0,1).toUpperCase() + filedName.substring(1));
-                                Object value = omethod.invoke(p);
-                                if(title.hasEnum()){
-                                    Class<?> cl = title.enumClass();
-                                    String methodName = title.enumMethod();
-                                    Class<?> argClass = title.enumMethodArgClass();
-                                    Method method = cl.getMethod(methodName,argClass);
-                                    value = method.invoke(null,value);
-                                }
-                                bean.put(filedName,value);
-                            } catch (Exception e) {
-                                logger.error("导出数据异常;{}{}",titleName,e);
-                            }
-
-                        }
-                    });
-                    listMap.add(bean);
-                }
-            }
-
-        }
-        if (titleName != null && merge != 0) {
-            // 这里做一个校验,在没有标题的时候,可作为模板使用
-            writer.merge(merge,titleName);
-        }
-        writer.write(listMap, true);
+        writeRows(writer, objects, titleName);
         //response为HttpServletResponse对象
         response.setContentType("application/vnd.ms-excel;charset=utf-8");
         //弹出下载对话框的文件名
@@ -128,23 +105,274 @@ public class ExcelTemplate {
     }
 
     /**
-     * 创建表头
-     * @param obj       数据实体
+     * 大数据量导出数据(xlsx)
+     * 注意 : 1)基于SXSSF按行窗口写出,内存中只保留最近 {@link BigExcelWriter#DEFAULT_WINDOW_SIZE} 行,
+     *         其余行实时刷到磁盘临时文件,堆内存占用与导出行数无关,不受xls的65536行限制
+     *       2)注解及枚举规则与 {@link #export(HttpServletResponse, List, String, String)} 一致
+     * @param response 响应
+     * @param objects  导出数据
+     * @param titleName 标题
+     * @param fileName  导出文件名
+     */
+    public static <T> void exportBig(HttpServletResponse response, List<T> objects, String titleName, String fileName) {
+        writeBig(response, fileName, writer -> writeRows(writer, objects, titleName));
+    }
+
+    /**
+     * 大数据量导出数据(xlsx),数据来源为迭代器
+     * 注意 : 1)迭代器按需拉取,写完一行再取下一行,可直接传入 mybatis Cursor 的迭代器,不必先把结果集全部加载到内存
+     *       2)指定了实体类型,没有数据时也会输出表头,可作为模板使用
+     * @param response 响应
+     * @param iterator 导出数据迭代器
+     * @param cls      实体类型
+     * @param titleName 标题
+     * @param fileName  导出文件名
+     */
+    public static <T> void exportBig(HttpServletResponse response, Iterator<T> iterator, Class<T> cls, String titleName, String fileName) {
+        writeBig(response, fileName, writer -> writeRows(writer, iterator, cls, titleName));
+    }
+
+    /**
+     * 大数据量导出数据(xlsx)到指定输出流,输出流由调用方关闭
+     * 用于异步导出等不直接写响应的场景
+     * @param out       输出流
+     * @param iterator  导出数据迭代器
+     * @param cls       实体类型
+     * @param titleName 标题
+     */
+    public static <T> void exportBig(OutputStream out, Iterator<T> iterator, Class<T> cls, String titleName) {
+        ExcelWriter writer = ExcelUtil.getBigWriter();
+        try {
+            writeRows(writer, iterator, cls, titleName);
+            writer.flush(out, false);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 大数据量导出数据(xlsx),数据来源为Stream,导出结束后关闭Stream
+     * @param response 响应
+     * @param stream   导出数据流
+     * @param cls      实体类型
+     * @param titleName 标题
+     * @param fileName  导出文件名
+     */
+    public static <T> void exportBig(HttpServletResponse response, Stream<T> stream, Class<T> cls, String titleName, String fileName) {
+        try (Stream<T> s = stream) {
+            exportBig(response, s.iterator(), cls, titleName, fileName);
+        }
+    }
+
+    /**
+     * 大数据量导出数据(xlsx),分页拉取数据
+     * 上一页写完后才会拉取下一页,查库与写表交替进行,内存中最多只保留一页数据;
+     * 返回空集合或不足一页时结束
+     * @param response   响应
+     * @param pageLoader 分页查询回调,页码从1开始
+     * @param pageSize   每页条数
+     * @param cls        实体类型
+     * @param titleName  标题
+     * @param fileName   导出文件名
+     */
+    public static <T> void exportBig(HttpServletResponse response, PageLoader<T> pageLoader, int pageSize, Class<T> cls, String titleName, String fileName) {
+        exportBig(response, new PageIterator<>(pageLoader, pageSize), cls, titleName, fileName);
+    }
+
+    /**
+     * 使用SXSSF写出并输出到响应
+     * @param response   响应
+     * @param fileName   导出文件名
+     * @param rowWriter  数据写出
+     */
+    private static void writeBig(HttpServletResponse response, String fileName, Consumer<ExcelWriter> rowWriter) {
+        ExcelWriter writer = ExcelUtil.getBigWriter();
+        try {
+            rowWriter.accept(writer);
+            setXlsxResponseHeader(response, fileName);
+            writer.flush(response.getOutputStream(), true);
+        } catch (IOException e) {
+            logger.error("导出数据,流关闭异常;", e);
+        } finally {
+            // 关闭writer,删除SXSSF产生的临时文件
+            writer.close();
+        }
+    }
+
+    /**
+     * 写出标题、表头及数据行
+     * @param writer    写入器
+     * @param objects   导出数据
+     * @param titleName 标题
+     */
+    private static <T> void writeRows(ExcelWriter writer, List<T> objects, String titleName) {
+        if (CollectionUtil.isEmpty(objects)) {
+            return;
+        }
+        writeRows(writer, objects.iterator(), objects.get(0).getClass(), titleName);
+    }
+
+    /**
+     * 写出标题、表头及数据行
+     * 实体加了注解时按列顺序逐行写出,列元数据按Class缓存,不再为每行构造Map;没加注解时默认全部导出
      * @param writer    写入器
-     * @return  字段名集合
+     * @param iterator  导出数据迭代器
+     * @param cls       实体类型
+     * @param titleName 标题
      */
-    private static List<String> createHeader(Object obj,ExcelWriter writer){
-        Class<?> clazz = obj.getClass();
-        Field[] fields = clazz.getDeclaredFields();
-        List<String> filedNames = new ArrayList<>();
-        Stream.of(fields).forEach(f -> {
-            ExcelTitle title = f.getAnnotation(ExcelTitle.class);
-            if(title!=null){
-                filedNames.add(f.getName());
-                writer.addHeaderAlias(f.getName(), title.value());
+    private static <T> void writeRows(ExcelWriter writer, Iterator<T> iterator, Class<?> cls, String titleName) {
+        ExcelBeanMeta meta = ExcelBeanMeta.of(cls);
+        if (!meta.hasColumns()) {
+            boolean first = true;
+            while (iterator.hasNext()) {
+                writer.writeRow(iterator.next(), first);
+                first = false;
             }
-        });
-        return filedNames;
+            return;
+        }
+        writeHeader(writer, meta, titleName);
+        List<Object> row = new ArrayList<>(meta.getTitles().size());
+        while (iterator.hasNext()) {
+            meta.fillRow(iterator.next(), row, titleName);
+            writer.writeRow(row);
+        }
+    }
+
+    /**
+     * 写出标题及表头
+     * @param writer    写入器
+     * @param meta      列元数据
+     * @param titleName 标题
+     */
+    private static void writeHeader(ExcelWriter writer, ExcelBeanMeta meta, String titleName) {
+        List<String> titles = meta.getTitles();
+        int merge = titles.size() - 1;
+        if (titleName != null && merge != 0) {
+            // 这里做一个校验,在没有标题的时候,可作为模板使用
+            writer.merge(merge, titleName);
+        }
+        writer.writeHeadRow(titles);
+    }
+
+    /**
+     * 多sheet并行导出数据(xlsx)
+     * 各sheet的数据查询和行数据转换在线程池中并行执行,写表仍按sheet顺序串行进行,
+     * 整体耗时接近最慢的一个sheet而不是所有sheet之和;任一sheet失败则整个导出失败
+     * @param response        响应
+     * @param sheets          sheet定义,按顺序输出
+     * @param executorService 线程池,一般使用 ThreadPoolConfiguration 中的 executorService
+     * @param fileName        导出文件名
+     */
+    public static void exportSheets(HttpServletResponse response, List<ExcelSheet<?>> sheets, ExecutorService executorService, String fileName) {
+        List<Future<PreparedSheet>> futures = new ArrayList<>(sheets.size());
+        for (ExcelSheet<?> sheet : sheets) {
+            futures.add(executorService.submit(() -> prepareSheet(sheet)));
+        }
+        try {
+            writeBig(response, fileName, writer -> {
+                for (int i = 0; i < futures.size(); i++) {
+                    PreparedSheet prepared = getSheet(futures.get(i), sheets.get(i));
+                    String sheetName = StringUtils.defaultIfEmpty(sheets.get(i).getSheetName(), "sheet" + (i + 1));
+                    if (i == 0) {
+                        writer.renameSheet(sheetName);
+                    } else {
+                        writer.setSheet(sheetName);
+                    }
+                    prepared.write(writer);
+                }
+            });
+        } finally {
+            // 失败时取消还未完成的查询
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * 查询并转换单个sheet的数据,在线程池中执行
+     * @param sheet sheet定义
+     * @return 转换后的sheet数据
+     */
+    private static <T> PreparedSheet prepareSheet(ExcelSheet<T> sheet) {
+        List<T> data = sheet.getDataLoader().get();
+        ExcelBeanMeta meta = ExcelBeanMeta.of(sheet.getCls());
+        if (data == null) {
+            data = Collections.emptyList();
+        }
+        if (!meta.hasColumns()) {
+            return new PreparedSheet(meta, sheet.getTitleName(), data, false);
+        }
+        List<List<Object>> rows = new ArrayList<>(data.size());
+        for (T t : data) {
+            rows.add(meta.getRow(t, sheet.getTitleName()));
+        }
+        return new PreparedSheet(meta, sheet.getTitleName(), rows, true);
+    }
+
+    /**
+     * 等待sheet数据查询完成
+     * @param future 查询结果
+     * @param sheet  sheet定义
+     * @return 转换后的sheet数据
+     */
+    private static PreparedSheet getSheet(Future<PreparedSheet> future, ExcelSheet<?> sheet) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("导出数据被中断;" + sheet.getSheetName(), e);
+        } catch (CancellationException e) {
+            // 超过请求截止时间仍未开始执行的查询会被取消
+            throw new ApiException("导出数据超时;" + sheet.getSheetName(), e);
+        } catch (ExecutionException e) {
+            logger.error("导出数据异常;{}", sheet.getSheetName(), e.getCause());
+            throw new ApiException("导出数据异常;" + sheet.getSheetName(), e.getCause());
+        }
+    }
+
+    /**
+     * 已转换好的sheet数据
+     */
+    private static class PreparedSheet {
+        private final ExcelBeanMeta meta;
+        private final String titleName;
+        private final List<?> rows;
+        /**
+         * rows是否已转换为按列顺序的行数据,否则为原始实体
+         */
+        private final boolean converted;
+
+        PreparedSheet(ExcelBeanMeta meta, String titleName, List<?> rows, boolean converted) {
+            this.meta = meta;
+            this.titleName = titleName;
+            this.rows = rows;
+            this.converted = converted;
+        }
+
+        void write(ExcelWriter writer) {
+            if (!converted) {
+                writer.write(rows, true);
+                return;
+            }
+            writeHeader(writer, meta, titleName);
+            for (Object row : rows) {
+                writer.writeRow((List<?>) row);
+            }
+        }
+    }
+
+    /**
+     * 设置xlsx下载的响应头
+     * @param response 响应
+     * @param fileName 导出文件名
+     */
+    private static void setXlsxResponseHeader(HttpServletResponse response, String fileName) {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet;charset=utf-8");
+        if (StringUtils.isEmpty(fileName)) {
+            response.setHeader("Content-Disposition", "attachment;filename=" + UUID.randomUUID() + ".xlsx");
+        } else {
+            String name = URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+            response.setHeader("Content-Disposition", "attachment;filename=" + name + ".xlsx");
+        }
     }
 
     /**
@@ -179,6 +407,53 @@ public class ExcelTemplate {
         return reader.readAll(cls);
     }
 
+    /**
+     * 大文件导入,基于SAX事件逐行解析,按批次回调
+     * 注意 : 1)上传文件先落到临时文件再按事件解析,不会把整个工作簿加载为DOM,内存占用只与批次大小有关
+     *       2)第一行必须为模板表头,否则抛出异常;表头按 {@link ExcelTitle} 与字段对应,列顺序不限
+     * @param file      文件
+     * @param cls       bean class
+     * @param batchSize 每批条数,如1000条一批做批量插入
+     * @param consumer  批次回调
+     * @param <V> bean 类型
+     * @throws IOException 抛出该错误自行接受处理
+     */
+    public static <V> void importBeans(MultipartFile file, Class<V> cls, int batchSize, Consumer<List<V>> consumer) throws IOException {
+        Asserts.isTrue(batchSize > 0, "每批条数必须大于0");
+        // 格式按文件头判断,与原始文件名无关(上传时可能没有文件名)
+        File tmpFile = File.createTempFile("excel-import-", ".tmp");
+        try {
+            file.transferTo(tmpFile);
+            BeanRowHandler<V> handler = new BeanRowHandler<>(cls, batchSize, consumer);
+            if (ExcelFileUtil.isXlsx(tmpFile)) {
+                // hutool按File读取时以读写模式打开且不关闭,这里只读打开并自行释放文件句柄
+                // 按sheetId读取第一个sheet,回调的sheetIndex取自关系id,不一定为0
+                OPCPackage pkg = openReadOnly(tmpFile);
+                try {
+                    new Excel07SaxReader(handler).read(pkg, "0");
+                } finally {
+                    pkg.revert();
+                }
+            } else {
+                ExcelUtil.readBySax(tmpFile, 0, handler);
+            }
+            if (!handler.isHeaderChecked()) {
+                Asserts.fail("请使用模板进行导入");
+            }
+            handler.flush();
+        } finally {
+            FileUtil.del(tmpFile);
+        }
+    }
+
+    private static OPCPackage openReadOnly(File file) throws IOException {
+        try {
+            return OPCPackage.open(file, PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("文件格式错误:" + file.getName(), e);
+        }
+    }
+
     public static Map<String,String> getHeaderAlias(Class<?> cls) {
         Map<String,String> alis = new LinkedHashMap<>(16);
         Field[] fields = cls.getDeclaredFields();
@@ -228,27 +503,192 @@ public class ExcelTemplate {
      */
     public static void downExcelByWorkbook(String fileName, Workbook workbook,
                                            HttpServletResponse response){
+        downExcelByWorkbook(fileName, workbook, response, false);
+    }
+
+    /**
+     * 导出excel表格
+     * 不落盘时直接写入响应流,不在内存中复制文件内容;
+     * 落盘时先写入临时文件,设置Content-Length后通过 FileChannel#transferTo 输出,便于客户端和代理流式下载
+     *
+     * @param fileName    文件名称
+     * @param workbook   表格组装实体
+     * @param response    响应对象
+     * @param spool       是否先写入临时文件,大文件建议开启
+     */
+    public static void downExcelByWorkbook(String fileName, Workbook workbook,
+                                           HttpServletResponse response, boolean spool){
+        Path tmpFile = null;
         try {
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            workbook.write(os);
-            byte[] content = os.toByteArray();
-            InputStream is = new ByteArrayInputStream(content);
+            if (spool) {
+                tmpFile = Files.createTempFile("excel-download-", ".tmp");
+                try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                    workbook.write(os);
+                }
+            }
             // 设置response参数，可以打开下载页面
             response.reset();
             response.setContentType("application/vnd.ms-excel;charset=utf-8");
             response.setHeader("Content-Disposition", "attachment;filename=" + new String(
                     (fileName + ".xls").getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1));
             ServletOutputStream out = response.getOutputStream();
-            try (BufferedInputStream bis = new BufferedInputStream(is); BufferedOutputStream bos = new BufferedOutputStream(out)) {
-                byte[] buff = new byte[2048];
-                int bytesRead;
-                // Simple read/write loop.
-                while (-1 != (bytesRead = bis.read(buff, 0, buff.length))) {
-                    bos.write(buff, 0, bytesRead);
+            if (tmpFile == null) {
+                workbook.write(out);
+                out.flush();
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.READ)) {
+                long size = channel.size();
+                response.setContentLengthLong(size);
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
                 }
             }
+            out.flush();
         }catch (IOException e){
             logger.error("excel导出异常",e);
+        } finally {
+            if (tmpFile != null) {
+                FileUtil.del(tmpFile.toFile());
+            }
+        }
+    }
+
+    /**
+     * SAX行处理器,校验表头后将每行转换为bean并按批次回调
+     */
+    private static class BeanRowHandler<V> implements RowHandler {
+        private final Class<V> cls;
+        private final int batchSize;
+        private final Consumer<List<V>> consumer;
+        private final Map<String, String> alias;
+        /**
+         * 列序号对应的字段名,表头校验通过后才有值
+         */
+        private String[] fieldNames;
+        private List<V> batch;
+
+        BeanRowHandler(Class<V> cls, int batchSize, Consumer<List<V>> consumer) {
+            this.cls = cls;
+            this.batchSize = batchSize;
+            this.consumer = consumer;
+            this.alias = getHeaderAlias(cls);
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void handle(int sheetIndex, long rowIndex, List<Object> rowList) {
+            if (fieldNames == null) {
+                checkHeader(rowList);
+                return;
+            }
+            Map<String, Object> bean = new HashMap<>(fieldNames.length);
+            for (int i = 0; i < fieldNames.length && i < rowList.size(); i++) {
+                if (fieldNames[i] != null) {
+                    bean.put(fieldNames[i], rowList.get(i));
+                }
+            }
+            batch.add(BeanUtil.toBean(bean, cls));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * 表头校验,看导入的是不是模板
+         * @param rowList 表头行
+         */
+        private void checkHeader(List<Object> rowList) {
+            String[] names = new String[rowList.size()];
+            Set<String> titles = new HashSet<>(rowList.size());
+            for (int i = 0; i < rowList.size(); i++) {
+                String title = Objects.toString(rowList.get(i), "").trim();
+                if (title.isEmpty()) {
+                    continue;
+                }
+                titles.add(title);
+                names[i] = alias.get(title);
+            }
+            if (!titles.equals(alias.keySet())) {
+                Asserts.fail("请使用模板进行导入");
+            }
+            this.fieldNames = names;
+        }
+
+        boolean isHeaderChecked() {
+            return fieldNames != null;
+        }
+
+        /**
+         * 回调剩余数据
+         */
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            consumer.accept(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * 分页查询回调
+     *
+     * @param <T> 实体类型
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        /**
+         * 查询一页数据
+         * @param pageNo   页码,从1开始
+         * @param pageSize 每页条数
+         * @return 当前页数据
+         */
+        List<T> load(int pageNo, int pageSize);
+    }
+
+    /**
+     * 分页迭代器,当前页遍历完才查询下一页
+     */
+    public static class PageIterator<T> implements Iterator<T> {
+        private final PageLoader<T> pageLoader;
+        private final int pageSize;
+        private int pageNo;
+        private Iterator<T> page = Collections.emptyIterator();
+        private boolean lastPage;
+
+        public PageIterator(PageLoader<T> pageLoader, int pageSize) {
+            Asserts.isTrue(pageSize > 0, "每页条数必须大于0");
+            this.pageLoader = pageLoader;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                if (lastPage) {
+                    return false;
+                }
+                // 先释放上一页再查询,保证内存中只有一页数据
+                page = Collections.emptyIterator();
+                List<T> records = pageLoader.load(++pageNo, pageSize);
+                if (CollectionUtil.isEmpty(records)) {
+                    return false;
+                }
+                lastPage = records.size() < pageSize;
+                page = records.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
         }
     }
 }
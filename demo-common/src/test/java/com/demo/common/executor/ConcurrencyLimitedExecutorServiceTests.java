@@ -0,0 +1,69 @@
+package com.demo.common.executor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitedExecutorServiceTests {
+
+    private ConcurrencyLimitedExecutorService executor;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        executor = new ConcurrencyLimitedExecutorService("test", Executors.newCachedThreadPool(), 1, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        TaskDeadline.clear();
+    }
+
+    @Test
+    void nestedSubmitRunsOnTheTaskThreadInsteadOfWaiting() throws Exception {
+        Future<Thread> outer = executor.submit(() -> {
+            Thread current = Thread.currentThread();
+            Future<Thread> inner = executor.submit(Thread::currentThread);
+            assertSame(current, inner.get(1, TimeUnit.SECONDS));
+            return current;
+        });
+
+        outer.get(2, TimeUnit.SECONDS);
+        assertEquals(1, registry.get("executor.caller.runs").counter().count());
+    }
+
+    @Test
+    void waitsForAPermitNoLongerThanTheDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TaskDeadline.start(100, TimeUnit.MILLISECONDS);
+        Thread caller = Thread.currentThread();
+
+        long start = System.nanoTime();
+        Future<Thread> future = executor.submit(Thread::currentThread);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertSame(caller, future.get());
+        assertEquals(1, registry.get("executor.caller.runs").counter().count());
+        release.countDown();
+    }
+}
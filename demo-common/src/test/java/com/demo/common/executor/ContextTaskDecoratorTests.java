@@ -0,0 +1,124 @@
+package com.demo.common.executor;
+
+import com.demo.common.domain.ThreadPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextTaskDecoratorTests {
+
+    private MonitoredThreadPoolExecutor executor;
+
+    private ContextTaskDecorator decorator;
+
+    @BeforeEach
+    void setUp() {
+        ThreadPoolProperties properties = new ThreadPoolProperties();
+        properties.setCorePoolSize(1);
+        properties.setMaxPoolSize(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor = new MonitoredThreadPoolExecutor("test", properties, Executors.defaultThreadFactory(), registry);
+        decorator = new ContextTaskDecorator("test", 0, registry);
+        executor.setTaskDecorator(decorator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        MDC.clear();
+        RequestContextHolder.resetRequestAttributes();
+        TaskDeadline.clear();
+    }
+
+    @Test
+    void propagatesMdcRequestAndDeadlineAndRestoresWorkerContext() throws Exception {
+        RequestAttributes request = new ServletRequestAttributes(new MockHttpServletRequest());
+        MDC.put("traceId", "t-1");
+        RequestContextHolder.setRequestAttributes(request);
+        TaskDeadline.start(1, TimeUnit.MINUTES);
+
+        Future<Object[]> seen = executor.submit(() -> new Object[]{MDC.get("traceId"),
+                RequestContextHolder.getRequestAttributes(), TaskDeadline.get()});
+        Object[] context = seen.get(5, TimeUnit.SECONDS);
+        Object[] after = workerContext();
+
+        assertEquals("t-1", context[0]);
+        assertSame(request, context[1]);
+        assertEquals(TaskDeadline.get(), context[2]);
+        assertNull(after[0]);
+        assertNull(after[1]);
+    }
+
+    @Test
+    void skipsAndCancelsTasksPastTheirDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TaskDeadline.start(50, TimeUnit.MILLISECONDS);
+        AtomicBoolean ran = new AtomicBoolean();
+        Future<?> late = executor.submit(() -> ran.set(true));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThrows(CancellationException.class, () -> late.get(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertEquals(1, decorator.expiredCount());
+        assertTrue(TaskDeadline.isExpired());
+    }
+
+    @Test
+    void runsTasksWithoutACancellableResultEvenPastTheirDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TaskDeadline.start(50, TimeUnit.MILLISECONDS);
+        CompletableFuture<String> async = CompletableFuture.supplyAsync(() -> "done", executor);
+        CountDownLatch executed = new CountDownLatch(1);
+        executor.execute(executed::countDown);
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("done", async.get(5, TimeUnit.SECONDS));
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, decorator.expiredCount());
+    }
+
+    /**
+     * 去掉装饰器后提交任务,读取工作线程执行完上一个任务后残留的上下文
+     */
+    private Object[] workerContext() throws Exception {
+        executor.setTaskDecorator(null);
+        return executor.submit(() -> new Object[]{MDC.get("traceId"), TaskDeadline.get()}).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,98 @@
+package com.demo.common.executor;
+
+import com.demo.common.domain.ThreadPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阻塞调用扇出基准:10000个约2ms的阻塞调用(模拟redis、http请求)全部完成的耗时
+ * platform 默认配置的平台线程池 ; limited 无界平台线程 + 并发上限 ; virtual 虚拟线程 + 并发上限(需要JDK 21)
+ * 运行: mvn -pl demo-common test-compile 后执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+    private static final int TASKS = 10000;
+
+    private static final long BLOCKING_MILLIS = 2;
+
+    @Param({"platform", "limited", "virtual"})
+    private String mode;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ThreadPoolProperties properties = new ThreadPoolProperties();
+        switch (mode) {
+            case "platform":
+                executor = new MonitoredThreadPoolExecutor("platform", properties, Executors.defaultThreadFactory(), registry);
+                break;
+            case "limited":
+                executor = new ConcurrencyLimitedExecutorService("limited", Executors.newCachedThreadPool(),
+                        properties.getMaxConcurrency(), registry);
+                break;
+            case "virtual":
+                if (!VirtualThreads.isSupported()) {
+                    throw new IllegalStateException("当前JDK不支持虚拟线程:" + System.getProperty("java.version"));
+                }
+                executor = new ConcurrencyLimitedExecutorService("virtual", VirtualThreads.newVirtualThreadPerTaskExecutor(),
+                        properties.getMaxConcurrency(), registry);
+                break;
+            default:
+                throw new IllegalArgumentException(mode);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long fanOut() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(BLOCKING_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        return latch.getCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FanOutBenchmark.class.getSimpleName()).build()).run();
+    }
+}
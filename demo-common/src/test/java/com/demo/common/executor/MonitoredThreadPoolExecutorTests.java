@@ -0,0 +1,129 @@
+package com.demo.common.executor;
+
+import com.demo.common.domain.ThreadPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonitoredThreadPoolExecutorTests {
+
+    private MonitoredThreadPoolExecutor executor;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        ThreadPoolProperties properties = new ThreadPoolProperties();
+        properties.setCorePoolSize(1);
+        properties.setMaxPoolSize(1);
+        properties.setQueueCapacity(10);
+        registry = new SimpleMeterRegistry();
+        executor = new MonitoredThreadPoolExecutor("test", properties, Executors.defaultThreadFactory(), registry);
+        // 与 ThreadPoolConfiguration 一致,队列中是装饰后的任务
+        executor.setTaskDecorator(new ContextTaskDecorator("test", 0, registry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void resizeValidatesAllArgumentsBeforeChangingAnything() {
+        assertThrows(IllegalArgumentException.class, () -> executor.resize(2, 4, 0));
+        assertEquals(1, executor.getCorePoolSize());
+        assertEquals(1, executor.getMaximumPoolSize());
+        assertEquals(10, executor.stats().getQueueCapacity());
+
+        executor.resize(2, 4, 20);
+        assertEquals(2, executor.getCorePoolSize());
+        assertEquals(4, executor.getMaximumPoolSize());
+        assertEquals(20, executor.stats().getQueueCapacity());
+    }
+
+    @Test
+    void queuedTasksCanBeRemovedAndAreReturnedByShutdownNow() throws InterruptedException {
+        blockWorker();
+        Runnable removed = () -> {
+        };
+        Runnable queued = () -> {
+        };
+        executor.execute(removed);
+        executor.execute(queued);
+
+        assertTrue(executor.remove(removed));
+        List<Runnable> pending = executor.shutdownNow();
+        assertEquals(1, pending.size());
+        assertSame(queued, pending.get(0));
+    }
+
+    @Test
+    void purgeDropsCancelledFutures() throws InterruptedException {
+        blockWorker();
+        Future<?> cancelled = executor.submit(() -> {
+        });
+        Future<?> kept = executor.submit(() -> {
+        });
+        cancelled.cancel(false);
+
+        executor.purge();
+
+        assertEquals(1, executor.getQueue().size());
+        assertFalse(kept.isDone());
+    }
+
+    @Test
+    void recordsWaitAndRunTime() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(2);
+        executor.execute(() -> {
+            sleep(50);
+            done.countDown();
+        });
+        executor.execute(done::countDown);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(2, registry.get("executor.wait").timer().count());
+        assertEquals(2, registry.get("executor.run").timer().count());
+        assertTrue(registry.get("executor.run").timer().max(TimeUnit.MILLISECONDS) >= 50);
+        assertTrue(registry.get("executor.wait").timer().max(TimeUnit.MILLISECONDS) >= 40);
+    }
+
+    /**
+     * 占用唯一的线程,之后提交的任务都在队列中,测试结束时 shutdownNow 中断
+     */
+    private void blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.demo.common.serializer;
+
+import com.demo.common.config.BaseRedisConfig;
+import com.demo.common.domain.RedisCompressionStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressingRedisSerializerTests {
+
+    private final RedisSerializer<Object> json = BaseRedisConfig.jsonRedisSerializer();
+
+    @Test
+    void compressesValuesAboveThresholdAndReadsThemBack() {
+        CompressingRedisSerializer serializer = new CompressingRedisSerializer(json, 1024);
+        List<String> report = report(2000);
+
+        byte[] bytes = serializer.serialize(report);
+
+        assertEquals(0, bytes[0]);
+        assertTrue(bytes.length < json.serialize(report).length / 4);
+        assertEquals(report, serializer.deserialize(bytes));
+        RedisCompressionStats stats = serializer.stats();
+        assertEquals(1, stats.getCompressed());
+        assertEquals(1, stats.getDecompressed());
+        assertTrue(stats.getRatio() < 0.25);
+    }
+
+    @Test
+    void keepsSmallValuesAndLegacyValuesReadable() {
+        CompressingRedisSerializer serializer = new CompressingRedisSerializer(json, 1024);
+        List<String> small = report(3);
+        List<String> legacy = report(2000);
+
+        assertArrayEquals(json.serialize(small), serializer.serialize(small));
+        assertEquals(legacy, serializer.deserialize(json.serialize(legacy)));
+        assertEquals(1, serializer.stats().getSkipped());
+        assertEquals(0, serializer.stats().getDecompressed());
+    }
+
+    @Test
+    void wrapsSmileSerializer() {
+        CompressingRedisSerializer serializer = new CompressingRedisSerializer(BaseRedisConfig.smileRedisSerializer(), 1024);
+        List<String> report = report(2000);
+
+        assertEquals(report, serializer.deserialize(serializer.serialize(report)));
+    }
+
+    @Test
+    void rejectsCorruptedValue() {
+        CompressingRedisSerializer serializer = new CompressingRedisSerializer(json, 1024);
+        byte[] bytes = serializer.serialize(report(2000));
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length / 2)));
+    }
+
+    private static List<String> report(int rows) {
+        List<String> report = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            report.add("部门" + (i % 10) + ",员工" + i + ",已完成");
+        }
+        return report;
+    }
+}
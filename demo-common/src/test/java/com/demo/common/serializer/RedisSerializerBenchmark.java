@@ -0,0 +1,146 @@
+package com.demo.common.serializer;
+
+import com.demo.common.config.BaseRedisConfig;
+import com.demo.common.domain.ExcelExportJob;
+import com.demo.common.domain.StreamConsumerMetrics;
+import com.demo.common.enums.ExportJobStatus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis值序列化基准:JSON vs Smile
+ * 编码后的字节数作为辅助结果 bytes 列在结果表中(每次操作的字节数),每次操作的内存分配可加 -prof gc 查看
+ * 运行: mvn -pl demo-common test-compile 后执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"job", "metrics", "list"})
+    private String payload;
+
+    private RedisSerializer<Object> serializer;
+
+    private Object value;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = BaseRedisConfig.SERIALIZER_SMILE.equals(format)
+                ? BaseRedisConfig.smileRedisSerializer() : BaseRedisConfig.jsonRedisSerializer();
+        switch (payload) {
+            case "job":
+                value = job(1);
+                break;
+            case "metrics":
+                value = metrics(1);
+                break;
+            default:
+                List<Object> list = new ArrayList<>(100);
+                for (int i = 0; i < 50; i++) {
+                    list.add(job(i));
+                    list.add(metrics(i));
+                }
+                value = list;
+        }
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize(EncodedSize size) {
+        byte[] encoded = serializer.serialize(value);
+        size.record(encoded.length);
+        return encoded;
+    }
+
+    @Benchmark
+    public Object deserialize(EncodedSize size) {
+        size.record(bytes.length);
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * 每次操作编码/解码的字节数,按迭代重置
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        private long total;
+
+        private long operations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            total = 0;
+            operations = 0;
+        }
+
+        void record(int length) {
+            total += length;
+            operations++;
+        }
+
+        public double bytes() {
+            return operations == 0 ? 0 : (double) total / operations;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RedisSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static ExcelExportJob job(int i) {
+        ExcelExportJob job = new ExcelExportJob();
+        job.setJobId("b4c1f0e2d9a84c7e9f3a" + i);
+        job.setFileName("用户列表" + i);
+        job.setStatus(ExportJobStatus.SUCCESS);
+        job.setRows(100000L + i);
+        job.setCreateTime(LocalDateTime.now());
+        job.setFinishTime(LocalDateTime.now());
+        return job;
+    }
+
+    private static StreamConsumerMetrics metrics(int i) {
+        StreamConsumerMetrics metrics = new StreamConsumerMetrics();
+        metrics.setStreamKey("STREAM:order" + i);
+        metrics.setGroup("order-group");
+        metrics.setConsumer("consumer-" + i);
+        metrics.setReceived(20000L + i);
+        metrics.setProcessed(19990L + i);
+        metrics.setFailed(10);
+        metrics.setRedelivered(3);
+        metrics.setPending(7);
+        metrics.setLagMillis(12);
+        metrics.setThroughput(1523.5);
+        return metrics;
+    }
+}
@@ -0,0 +1,137 @@
+package com.demo.common.service.impl;
+
+import com.demo.common.domain.ParallelResult;
+import com.demo.common.exception.ApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelServiceImplTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final ParallelServiceImpl parallelService = new ParallelServiceImpl(executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void allOfTakesTheSlowestTaskNotTheSum() {
+        long start = System.nanoTime();
+        List<Integer> values = parallelService.allOf(Arrays.asList(sleep(200, 1), sleep(200, 2), sleep(200, 3)),
+                5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(1, 2, 3), values);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+    }
+
+    @Test
+    void allOfFailsFastAndCancelsTheRest() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        ApiException cause = new ApiException("redis down");
+        Callable<Integer> slow = () -> {
+            started.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+            }
+            return 0;
+        };
+        // 等慢任务开始执行后再失败,未开始的任务被取消时不会中断
+        Callable<Integer> failing = () -> {
+            started.await();
+            throw cause;
+        };
+
+        long start = System.nanoTime();
+        ApiException thrown = assertThrows(ApiException.class,
+                () -> parallelService.allOf(Arrays.asList(slow, failing), 5, TimeUnit.SECONDS));
+
+        assertSame(cause, thrown);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertDoesCountDown(cancelled);
+    }
+
+    @Test
+    void allSettledKeepsPartialResultsOnFailureAndTimeout() {
+        Callable<Integer> failing = () -> {
+            throw new IllegalStateException("http 500");
+        };
+
+        ParallelResult<Integer> result = parallelService.allSettled(
+                Arrays.asList(sleep(0, 1), failing, sleep(5000, 3)), 300, TimeUnit.MILLISECONDS);
+
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getValues().get(0));
+        assertNull(result.getValues().get(2));
+        assertTrue(result.getFailures().get(1) instanceof IllegalStateException);
+        assertEquals(1, result.getUnfinished());
+    }
+
+    @Test
+    void anyOfReturnsTheFirstSuccess() {
+        Callable<Integer> failing = () -> {
+            throw new IllegalStateException("replica down");
+        };
+
+        assertEquals(2, parallelService.anyOf(Arrays.asList(failing, sleep(50, 2), sleep(3000, 3)), 5, TimeUnit.SECONDS));
+        assertThrows(ApiException.class, () -> parallelService.anyOf(Arrays.asList(failing, failing), 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void parallelMapBoundsConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 40).boxed().collect(Collectors.toList());
+
+        List<Integer> doubled = parallelService.parallelMap(items, i -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return i * 2;
+        }, 4, 5, TimeUnit.SECONDS);
+
+        assertEquals(items.stream().map(i -> i * 2).collect(Collectors.toList()), doubled);
+        assertTrue(peak.get() <= 4);
+    }
+
+    private static Callable<Integer> sleep(long millis, int value) {
+        return () -> {
+            Thread.sleep(millis);
+            return value;
+        };
+    }
+
+    private static void assertDoesCountDown(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
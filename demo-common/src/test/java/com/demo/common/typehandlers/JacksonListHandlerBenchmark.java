@@ -0,0 +1,124 @@
+package com.demo.common.typehandlers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集合字段解析基准:原 JsonNode 树 + treeToValue vs 缓存 {@code List<T>} 类型的 ObjectReader 直接绑定
+ * 运行: mvn -pl demo-common test-compile 后执行 main 方法,可加 -prof gc 对比内存分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonListHandlerBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    private String json;
+
+    private ItemListHandler handler;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item((long) i, "item" + i, i * 1.5, LocalDateTime.of(2021, 9, 6, 0, 0).plusMinutes(i)));
+        }
+        handler = new ItemListHandler();
+        json = JacksonListHandler.objectMapper.writeValueAsString(items);
+    }
+
+    @Benchmark
+    public List<Item> tree() throws JsonProcessingException {
+        JsonNode arrayNode = JacksonListHandler.objectMapper.readTree(json);
+        List<Item> result = new ArrayList<>(arrayNode.size());
+        for (JsonNode node : arrayNode) {
+            result.add(JacksonListHandler.objectMapper.treeToValue(node, Item.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Item> cachedReader() {
+        return handler.parse(json);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JacksonListHandlerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class ItemListHandler extends JacksonListHandler<Item> {
+    }
+
+    public static class Item {
+        private Long id;
+        private String name;
+        private Double price;
+        private LocalDateTime createTime;
+
+        public Item() {
+        }
+
+        Item(Long id, String name, Double price, LocalDateTime createTime) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.createTime = createTime;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Double getPrice() {
+            return price;
+        }
+
+        public void setPrice(Double price) {
+            this.price = price;
+        }
+
+        public LocalDateTime getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(LocalDateTime createTime) {
+            this.createTime = createTime;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.demo.common.typehandlers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JacksonListHandlerTests {
+
+    private final ItemListHandler handler = new ItemListHandler();
+
+    @Test
+    void parsesWhatItWrites() {
+        List<Item> items = Arrays.asList(new Item(1L, "a", 1.5, LocalDateTime.of(2021, 9, 6, 8, 0)),
+                new Item(2L, "b", null, null));
+
+        List<Item> parsed = handler.parse(handler.toJson(items));
+
+        assertTrue(parsed instanceof ArrayList);
+        assertEquals(2, parsed.size());
+        assertEquals("a", parsed.get(0).getName());
+        assertEquals(LocalDateTime.of(2021, 9, 6, 8, 0), parsed.get(0).getCreateTime());
+        assertEquals(2L, parsed.get(1).getId());
+        assertTrue(handler.parse("[]").isEmpty());
+    }
+
+    @Test
+    void rejectsNonArrayColumns() {
+        assertThrows(RuntimeException.class, () -> handler.parse("{\"id\":1}"));
+    }
+
+    static class ItemListHandler extends JacksonListHandler<Item> {
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Item {
+        private Long id;
+        private String name;
+        private Double price;
+        private LocalDateTime createTime;
+    }
+}
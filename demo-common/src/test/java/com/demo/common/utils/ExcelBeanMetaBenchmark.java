@@ -0,0 +1,151 @@
+package com.demo.common.utils;
+
+import com.demo.common.annotation.ExcelTitle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 导出行数据提取基准:原逐行反射 vs 按Class缓存的预编译元数据
+ * 运行: mvn -pl demo-common test-compile 后执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExcelBeanMetaBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private List<Row> objects;
+
+    private List<String> filedNames;
+
+    @Setup
+    public void setup() {
+        objects = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            objects.add(new Row(i, "name" + i, "dept" + (i % 10), i % 2));
+        }
+        filedNames = new ArrayList<>();
+        for (Field f : Row.class.getDeclaredFields()) {
+            if (f.getAnnotation(ExcelTitle.class) != null) {
+                filedNames.add(f.getName());
+            }
+        }
+    }
+
+    /**
+     * 原 ExcelTemplate.export 的逐行反射取值
+     */
+    @Benchmark
+    public void reflection(Blackhole bh) {
+        for (Row p : objects) {
+            Class<?> objClass = p.getClass();
+            Field[] objClassDeclaredFields = objClass.getDeclaredFields();
+            Map<String, Object> bean = new HashMap<>(objClassDeclaredFields.length);
+            Stream.of(objClassDeclaredFields).forEach(f -> {
+                String filedName = f.getName();
+                if (filedNames.contains(filedName)) {
+                    ExcelTitle title = f.getAnnotation(ExcelTitle.class);
+                    try {
+                        Method omethod = objClass.getMethod("get" + filedName.substring(0, 1).toUpperCase() + filedName.substring(1));
+                        Object value = omethod.invoke(p);
+                        if (title.hasEnum()) {
+                            Method method = title.enumClass().getMethod(title.enumMethod(), title.enumMethodArgClass());
+                            value = method.invoke(null, value);
+                        }
+                        bean.put(filedName, value);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            bh.consume(bean);
+        }
+    }
+
+    @Benchmark
+    public void cachedMeta(Blackhole bh) {
+        ExcelBeanMeta meta = ExcelBeanMeta.of(Row.class);
+        List<Object> row = new ArrayList<>(meta.getTitles().size());
+        for (Row p : objects) {
+            meta.fillRow(p, row, null);
+            bh.consume(row);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExcelBeanMetaBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class Row {
+        @ExcelTitle("编号")
+        private final Integer id;
+        @ExcelTitle("姓名")
+        private final String name;
+        @ExcelTitle("部门")
+        private final String dept;
+        @ExcelTitle(value = "状态", hasEnum = true, enumClass = Status.class, enumMethod = "getDesc",
+                enumMethodArgClass = Integer.class)
+        private final Integer status;
+        private final String remark = "";
+
+        Row(Integer id, String name, String dept, Integer status) {
+            this.id = id;
+            this.name = name;
+            this.dept = dept;
+            this.status = status;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDept() {
+            return dept;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+    }
+
+    public static class Status {
+        public static String getDesc(Integer code) {
+            return code == 0 ? "启用" : "禁用";
+        }
+    }
+}
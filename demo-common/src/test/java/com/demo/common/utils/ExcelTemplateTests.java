@@ -0,0 +1,253 @@
+package com.demo.common.utils;
+
+import cn.hutool.poi.excel.ExcelReader;
+import com.demo.common.annotation.ExcelTitle;
+import com.demo.common.domain.ExcelSheet;
+import com.demo.common.exception.ApiException;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExcelTemplateTests {
+
+    @Test
+    void exportBigWritesTitleHeaderAndEnumColumns() {
+        List<ExportRow> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new ExportRow("name" + i, i % 2));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ExcelTemplate.exportBig(response, rows, "员工", "employee");
+
+        assertTrue(response.getHeader("Content-Disposition").endsWith("employee.xlsx"));
+        List<List<Object>> sheet = read(response);
+        assertEquals(1002, sheet.size());
+        assertEquals("员工", sheet.get(0).get(0));
+        assertEquals(List.of("姓名", "状态"), sheet.get(1));
+        assertEquals(List.of("name999", "禁用"), sheet.get(1001));
+    }
+
+    @Test
+    void exportBigPullsNextPageOnlyAfterPreviousPageIsWritten() {
+        List<Integer> requestedPages = new ArrayList<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ExcelTemplate.exportBig(response, (pageNo, pageSize) -> {
+            requestedPages.add(pageNo);
+            int size = pageNo < 3 ? pageSize : 10;
+            List<ExportRow> page = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                page.add(new ExportRow("p" + pageNo + "-" + i, 0));
+            }
+            return page;
+        }, 100, ExportRow.class, "员工", null);
+
+        assertEquals(List.of(1, 2, 3), requestedPages);
+        List<List<Object>> sheet = read(response);
+        assertEquals(212, sheet.size());
+        assertEquals(List.of("p3-9", "启用"), sheet.get(211));
+    }
+
+    @Test
+    void exportBigWritesHeaderForEmptyIterator() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ExcelTemplate.exportBig(response, Collections.<ExportRow>emptyIterator(), ExportRow.class, null, null);
+
+        assertEquals(List.of(List.of("姓名", "状态")), read(response));
+    }
+
+    @Test
+    void importBeansStreamsRowsInBatches() throws IOException {
+        List<ImportRow> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new ImportRow("name" + i, i));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ExcelTemplate.exportBig(response, rows, null, null);
+        MockMultipartFile file = new MockMultipartFile("file", "import.xlsx", null, response.getContentAsByteArray());
+        List<Integer> batchSizes = new ArrayList<>();
+        List<ImportRow> imported = new ArrayList<>();
+
+        ExcelTemplate.importBeans(file, ImportRow.class, 300, batch -> {
+            batchSizes.add(batch.size());
+            imported.addAll(batch);
+        });
+
+        assertEquals(List.of(300, 300, 300, 100), batchSizes);
+        assertEquals("name999", imported.get(999).getName());
+        assertEquals(999, imported.get(999).getAge());
+    }
+
+    @Test
+    void importBeansRejectsFileWithoutTemplateHeader() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ExcelTemplate.exportBig(response, List.of(new ExportRow("name", 0)), null, null);
+        MockMultipartFile file = new MockMultipartFile("file", "import.xlsx", null, response.getContentAsByteArray());
+
+        assertThrows(ApiException.class, () -> ExcelTemplate.importBeans(file, ImportRow.class, 10, batch -> {
+        }));
+    }
+
+    @Test
+    void exportSheetsLoadsSheetsConcurrentlyAndWritesInOrder() throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        // 两个sheet互相等待,只有并行查询才能完成
+        CountDownLatch latch = new CountDownLatch(2);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            ExcelTemplate.exportSheets(response, List.of(
+                    ExcelSheet.<ExportRow>builder().sheetName("first").cls(ExportRow.class)
+                            .dataLoader(() -> awaitThen(latch, List.of(new ExportRow("a", 0)))).build(),
+                    ExcelSheet.<ExportRow>builder().sheetName("second").titleName("员工").cls(ExportRow.class)
+                            .dataLoader(() -> awaitThen(latch, List.of(new ExportRow("b", 1)))).build()
+            ), executorService, null);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals("first", workbook.getSheetName(0));
+            assertEquals("second", workbook.getSheetName(1));
+        }
+        ExcelReader reader = new ExcelReader(new ByteArrayInputStream(response.getContentAsByteArray()), "second");
+        try {
+            assertEquals(List.of("b", "禁用"), reader.read().get(2));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void downExcelByWorkbookSpoolsWithContentLength() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet("data").createRow(0).createCell(0).setCellValue("value");
+
+            ExcelTemplate.downExcelByWorkbook("report", workbook, response, true);
+        }
+
+        byte[] content = response.getContentAsByteArray();
+        assertEquals(content.length, response.getContentLengthLong());
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(content))) {
+            assertEquals("value", workbook.getSheet("data").getRow(0).getCell(0).getStringCellValue());
+        }
+    }
+
+    private static <T> T awaitThen(CountDownLatch latch, T value) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    private static List<List<Object>> read(MockHttpServletResponse response) {
+        ExcelReader reader = new ExcelReader(new ByteArrayInputStream(response.getContentAsByteArray()), 0);
+        try {
+            return reader.read();
+        } finally {
+            reader.close();
+        }
+    }
+
+    public static class ExportRow {
+        @ExcelTitle("姓名")
+        private final String name;
+        @ExcelTitle(value = "状态", hasEnum = true, enumClass = Status.class, enumMethod = "getDesc",
+                enumMethodArgClass = Integer.class)
+        private final Integer status;
+
+        ExportRow(String name, Integer status) {
+            this.name = name;
+            this.status = status;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+    }
+
+    public static class ImportRow {
+        @ExcelTitle("姓名")
+        private String name;
+        @ExcelTitle("年龄")
+        private Integer age;
+
+        public ImportRow() {
+        }
+
+        ImportRow(String name, Integer age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public void setAge(Integer age) {
+            this.age = age;
+        }
+    }
+
+    public enum Status {
+        /**
+         * 启用
+         */
+        ENABLE(0, "启用"),
+        /**
+         * 禁用
+         */
+        DISABLE(1, "禁用");
+
+        private final int code;
+        private final String desc;
+
+        Status(int code, String desc) {
+            this.code = code;
+            this.desc = desc;
+        }
+
+        public static String getDesc(Integer code) {
+            for (Status status : values()) {
+                if (status.code == code) {
+                    return status.desc;
+                }
+            }
+            return null;
+        }
+    }
+}